@@ -0,0 +1,50 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class AttributeKey<T> {
+
+	private static final AtomicInteger nextId = new AtomicInteger(0);
+
+	private static final ConcurrentHashMap<String, AttributeKey<?>> keys = new ConcurrentHashMap<>();
+
+	private final int id;
+
+	private final String name;
+
+	private AttributeKey(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> AttributeKey<T> valueOf(String name) {
+		if(name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("attribute key name can not be empty.");
+		}
+		return (AttributeKey<T>) keys.computeIfAbsent(name,
+				n -> new AttributeKey<>(nextId.getAndIncrement(), n));
+	}
+
+	public static <T> AttributeKey<T> valueOf(Class<?> owner, String name) {
+		return valueOf(owner.getName() + "#" + name);
+	}
+
+	protected static int count() {
+		return nextId.get();
+	}
+
+	public int id() {
+		return id;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,127 @@
+package com.archer.jdknet;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class BufferPool {
+
+	private static final int MIN_SHIFT = 12;
+	private static final int MAX_SHIFT = 20;
+	private static final int CLASS_COUNT = MAX_SHIFT - MIN_SHIFT + 1;
+
+	public static final int MIN_SIZE = 1 << MIN_SHIFT;
+	public static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+	private static final int LOCAL_CACHE_SIZE = 4;
+	private static final int SHARED_CACHE_BYTES = 32 * 1024 * 1024;
+	private static final int SHARED_CACHE_MAX = 1024;
+
+	private static final ThreadLocal<LocalCache> localCache = new ThreadLocal<LocalCache>() {
+		@Override
+		protected LocalCache initialValue() {
+			return new LocalCache();
+		}
+	};
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final ConcurrentLinkedQueue<ByteBuffer>[] sharedCache =
+			new ConcurrentLinkedQueue[CLASS_COUNT];
+	private static final AtomicInteger[] sharedCount = new AtomicInteger[CLASS_COUNT];
+
+	static {
+		for(int i = 0; i < CLASS_COUNT; i++) {
+			sharedCache[i] = new ConcurrentLinkedQueue<>();
+			sharedCount[i] = new AtomicInteger(0);
+		}
+	}
+
+	private BufferPool() {}
+
+	public static ByteBuffer acquire(int size) {
+		int idx = sizeClass(size);
+		if(idx < 0) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		ByteBuffer buf = localCache.get().poll(idx);
+		if(buf == null) {
+			buf = sharedCache[idx].poll();
+			if(buf != null) {
+				sharedCount[idx].decrementAndGet();
+			} else {
+				buf = ByteBuffer.allocateDirect(1 << (idx + MIN_SHIFT));
+			}
+		}
+		buf.clear();
+		return buf;
+	}
+
+	public static void release(ByteBuffer buf) {
+		if(buf == null || !buf.isDirect()) {
+			return ;
+		}
+		int cap = buf.capacity();
+		if(cap < MIN_SIZE || cap > MAX_SIZE || (cap & (cap - 1)) != 0) {
+			return ;
+		}
+		int idx = Integer.numberOfTrailingZeros(cap) - MIN_SHIFT;
+		if(localCache.get().offer(idx, buf)) {
+			return ;
+		}
+		if(sharedCount[idx].incrementAndGet() <= sharedLimit(idx)) {
+			sharedCache[idx].offer(buf);
+		} else {
+			sharedCount[idx].decrementAndGet();
+		}
+	}
+
+	public static void leakDetection(boolean enable) {
+		LeakDetector.enable(enable);
+	}
+
+	public static int sizeOf(int size) {
+		int idx = sizeClass(size);
+		return idx < 0 ? size : 1 << (idx + MIN_SHIFT);
+	}
+
+	private static int sizeClass(int size) {
+		if(size > MAX_SIZE) {
+			return -1;
+		}
+		if(size <= MIN_SIZE) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+	}
+
+	private static int sharedLimit(int idx) {
+		return Math.min(SHARED_CACHE_MAX, SHARED_CACHE_BYTES >> (idx + MIN_SHIFT));
+	}
+
+	private static class LocalCache {
+
+		ByteBuffer[][] buffers = new ByteBuffer[CLASS_COUNT][LOCAL_CACHE_SIZE];
+		int[] counts = new int[CLASS_COUNT];
+
+		ByteBuffer poll(int idx) {
+			int count = counts[idx];
+			if(count == 0) {
+				return null;
+			}
+			ByteBuffer buf = buffers[idx][--count];
+			buffers[idx][count] = null;
+			counts[idx] = count;
+			return buf;
+		}
+
+		boolean offer(int idx, ByteBuffer buf) {
+			int count = counts[idx];
+			if(count >= LOCAL_CACHE_SIZE) {
+				return false;
+			}
+			buffers[idx][count] = buf;
+			counts[idx] = count + 1;
+			return true;
+		}
+	}
+}
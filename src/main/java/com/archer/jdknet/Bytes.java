@@ -3,17 +3,22 @@ package com.archer.jdknet;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
-public final class Bytes {
+public class Bytes {
 	
     public static final int BUFFER_SIZE = 1024 * 1024;
     
+    protected static final byte[] EMPTY = new byte[0];
+    
+    private static final int VARINT_MASK = 0x7f;
+    private static final int VARINT_MORE = 0x80;
+    
 	private byte[] data;
 	
-	private volatile int read;
+	private int read;
 	
-	private volatile int write;
+	private int write;
 	
-	private Object lock = new Object();
+	private boolean shared;
 	
 	public Bytes() {
 		this(BUFFER_SIZE);
@@ -24,13 +29,30 @@ public final class Bytes {
 		read = 0;
 		write = 0;
 	}
-
+	
 	public Bytes(byte[] data) {
 		this.data = data;
 		read = 0;
 		write = data.length;
 	}
 	
+	public Bytes(byte[] data, int off, int len) {
+		if(off < 0 || len < 0 || off + len > data.length) {
+			throw new IllegalArgumentException("length out of range, max = " +
+						(data.length - off) +", provide = " + len);
+		}
+		this.data = data;
+		read = off;
+		write = off + len;
+	}
+	
+	public static Bytes synchronizedBytes(Bytes bytes) {
+		if(bytes instanceof SynchronizedBytes) {
+			return bytes;
+		}
+		return new SynchronizedBytes(bytes);
+	}
+	
 	public int available() {
 		return write - read;
 	}
@@ -48,22 +70,17 @@ public final class Bytes {
 	}
 	
 	public byte byteAt(int index) {
-		if(index > available()) {
+		if(index >= write - read) {
 			throw new IllegalArgumentException("index out of range.");
 		}
 		return data[read + index];
 	}
 	
 	public byte[] read(int len) {
-		synchronized(lock) {
-			if(len > write - read) {
-				throw new IllegalArgumentException("length out of range, max = " + 
-							(write - read) +", provide = " + len);
-			}
-			byte[] ret = Arrays.copyOfRange(data, read, read+len);
-			read = read + len;
-			return ret;
-		}
+		checkReadable(len);
+		byte[] ret = Arrays.copyOfRange(data, read, read + len);
+		read += len;
+		return ret;
 	}
 	
 	public int read(byte[] out) {
@@ -71,52 +88,70 @@ public final class Bytes {
 	}
 	
 	public int read(byte[] out, int off, int len) {
-		synchronized(lock) {
-			if(len > write - read) {
-				throw new IllegalArgumentException("length out of range, max = " + 
-							(write - read) +", provide = " + len);
-			}
-			if(off + len > out.length) {
-				throw new IllegalArgumentException("length out of range " + len);
-			}
-			System.arraycopy(data, read, out, off, len);
-			read = read + len;
-			return len;
+		checkReadable(len);
+		if(off + len > out.length) {
+			throw new IllegalArgumentException("length out of range " + len);
 		}
+		System.arraycopy(data, read, out, off, len);
+		read += len;
+		return len;
 	}
 	
 	public int readInt8() {
-		byte[] bytes = read(1);
-    	int i0 = bytes[0];
-    	i0 = i0 < 0 ? i0 + 256 : i0;
-    	return i0;	
+		checkReadable(1);
+		return data[read++] & 0xff;
 	}
 	
 	public int readInt16() {
-		byte[] bytes = read(2);
-    	int i0 = bytes[0], i1 = bytes[1];
-    	i0 = i0 < 0 ? i0 + 256 : i0;
-    	i1 = i1 < 0 ? i1 + 256 : i1;
-    	return (i0 << 8) | i1;	
+		return (int) readNumber(2, false);
 	}
 	
 	public int readInt24() {
-		byte[] bytes = read(3);
-    	int i0 = bytes[0], i1 = bytes[1], i2 = bytes[2];
-    	i0 = i0 < 0 ? i0 + 256 : i0;
-    	i1 = i1 < 0 ? i1 + 256 : i1;
-    	i2 = i2 < 0 ? i2 + 256 : i2;
-    	return (i0 << 16) | (i1 << 8) | i2;	
+		return (int) readNumber(3, false);
 	}
 	
 	public int readInt32() {
-		byte[] bytes = read(4);
-    	int i0 = bytes[0], i1 = bytes[1], i2 = bytes[2], i3 = bytes[3];
-    	i0 = i0 < 0 ? i0 + 256 : i0;
-    	i1 = i1 < 0 ? i1 + 256 : i1;
-    	i2 = i2 < 0 ? i2 + 256 : i2;
-    	i3 = i3 < 0 ? i3 + 256 : i3;
-    	return (i0 << 24) | (i1 << 16) | (i2 << 8) | i3;	
+		return (int) readNumber(4, false);
+	}
+	
+	public long readInt64() {
+		return readNumber(8, false);
+	}
+	
+	public int readInt16LE() {
+		return (int) readNumber(2, true);
+	}
+	
+	public int readInt24LE() {
+		return (int) readNumber(3, true);
+	}
+	
+	public int readInt32LE() {
+		return (int) readNumber(4, true);
+	}
+	
+	public long readInt64LE() {
+		return readNumber(8, true);
+	}
+	
+	public int readVarInt() {
+		long v = readVarLong();
+		if(v > 0xffffffffL) {
+			throw new IllegalArgumentException("varint out of int's range.");
+		}
+		return (int) v;
+	}
+	
+	public long readVarLong() {
+		long v = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			int b = readInt8();
+			v |= (long) (b & VARINT_MASK) << shift;
+			if((b & VARINT_MORE) == 0) {
+				return v;
+			}
+		}
+		throw new IllegalArgumentException("malformed varint.");
 	}
 	
 	public void write(byte[] in) {
@@ -125,53 +160,87 @@ public final class Bytes {
 	
 	public void write(byte[] in, int off, int len) {
 		if(off + len > in.length) {
-			throw new IllegalArgumentException("length out range, max = " + 
+			throw new IllegalArgumentException("length out range, max = " +
 						(in.length - off) +", provide = " + len);
 		}
-		synchronized(lock) { 
-			if(data.length - write + read < len) {
-				int newLen = data.length << 1;
-				while(newLen - write + read < len) {
-					newLen <<= 1;
-				}
-				byte[] tmp = new byte[newLen];
-				System.arraycopy(data, read, tmp, 0, write - read);
-				data = tmp;
-				write = write - read;
-				read = 0;
-			} else if(data.length - write < len) {
-				System.arraycopy(data, read, data, 0, write - read);
-				write = write - read;
-				read = 0;
+		ensureWritable(len);
+		System.arraycopy(in, off, data, write, len);
+		write += len;
+	}
+	
+	private void ensureWritable(int len) {
+		if(shared) {
+			int newLen = Math.max(data.length, write - read + len);
+			byte[] tmp = new byte[newLen];
+			System.arraycopy(data, read, tmp, 0, write - read);
+			data = tmp;
+			write = write - read;
+			read = 0;
+			shared = false;
+		} else if(data.length - write + read < len) {
+			int newLen = Math.max(data.length << 1, 1);
+			while(newLen - write + read < len) {
+				newLen <<= 1;
 			}
-			System.arraycopy(in, off, data, write, len);
-			write += len;
+			byte[] tmp = new byte[newLen];
+			System.arraycopy(data, read, tmp, 0, write - read);
+			data = tmp;
+			write = write - read;
+			read = 0;
+		} else if(data.length - write < len) {
+			System.arraycopy(data, read, data, 0, write - read);
+			write = write - read;
+			read = 0;
 		}
 	}
 	
 	public void writeInt8(int i) {
-		write(new byte[] {(byte) i});
+		ensureWritable(1);
+		data[write++] = (byte) i;
 	}
 	
 	public void writeInt16(int i) {
-		byte b0 = (byte) (i >> 8);
-		byte b1 = (byte) i;
-		write(new byte[] {b0, b1});
+		writeNumber(i, 2, false);
 	}
 	
 	public void writeInt24(int i) {
-		byte b0 = (byte) (i >> 16);
-		byte b1 = (byte) (i >> 8);
-		byte b2 = (byte) i;
-		write(new byte[] {b0, b1, b2});
+		writeNumber(i, 3, false);
 	}
 	
 	public void writeInt32(int i) {
-		byte b0 = (byte) (i >> 24);
-		byte b1 = (byte) (i >> 16);
-		byte b2 = (byte) (i >> 8);
-		byte b3 = (byte) i;
-		write(new byte[] {b0, b1, b2, b3});
+		writeNumber(i, 4, false);
+	}
+	
+	public void writeInt64(long i) {
+		writeNumber(i, 8, false);
+	}
+	
+	public void writeInt16LE(int i) {
+		writeNumber(i, 2, true);
+	}
+	
+	public void writeInt24LE(int i) {
+		writeNumber(i, 3, true);
+	}
+	
+	public void writeInt32LE(int i) {
+		writeNumber(i, 4, true);
+	}
+	
+	public void writeInt64LE(long i) {
+		writeNumber(i, 8, true);
+	}
+	
+	public void writeVarInt(int i) {
+		writeVarLong(i & 0xffffffffL);
+	}
+	
+	public void writeVarLong(long i) {
+		while((i & ~VARINT_MASK) != 0) {
+			writeInt8((int) ((i & VARINT_MASK) | VARINT_MORE));
+			i >>>= 7;
+		}
+		writeInt8((int) i);
 	}
 	
 	public void clear() {
@@ -181,24 +250,30 @@ public final class Bytes {
 	
 	public void writeToByteBuffer(ByteBuffer buffer) {
 		int len = write - read;
-		if(buffer.remaining() < write - read) {
+		if(buffer.remaining() < len) {
 			len = buffer.remaining();
 		}
-		buffer.put(read(len));
+		buffer.put(data, read, len);
+		read += len;
 	}
 	
 	public void writeToByteBuffer(ByteBuffer buffer, int len) {
 		if(buffer.remaining() < len) {
 			throw new IllegalArgumentException("Buffer underflow.");
 		}
-		if(len > available()) {
+		if(len > write - read) {
 			throw new IllegalArgumentException("Bytes underflow.");
 		}
-		buffer.put(read(len));
+		buffer.put(data, read, len);
+		read += len;
 	}
 	
 	public void readFromByteBuffer(ByteBuffer buffer) {
-		write(buffer.array(), buffer.position(), buffer.remaining());
+		if(!buffer.hasArray()) {
+			readFromDirectBuffer(buffer);
+			return ;
+		}
+		write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
 		buffer.position(buffer.limit());
 	}
 	
@@ -206,22 +281,17 @@ public final class Bytes {
 		if(!buffer.hasRemaining()) {
 			return ;
 		}
-		int len = write - read;
-		if(buffer.remaining() < write - read) {
-			len = buffer.remaining();
-		}
-		buffer.put(read(len));
+		writeToByteBuffer(buffer);
 	}
 	
 	public void readFromDirectBuffer(ByteBuffer buffer) {
 		if(!buffer.hasRemaining()) {
 			return ;
 		}
-		byte[] bytes = new byte[buffer.remaining()];
-		for(int i = 0; i < bytes.length; i++) {
-			bytes[i] = buffer.get();
-		}
-		write(bytes);
+		int len = buffer.remaining();
+		ensureWritable(len);
+		buffer.get(data, write, len);
+		write += len;
 	}
 	
 	public ByteBuffer toByteBuffer() {
@@ -231,45 +301,104 @@ public final class Bytes {
 	}
 	
 	public int writeToBytes(Bytes in) {
-		int len = available();
+		int len = write - read;
 		if(len > 0) {
-			in.write(readAll());
+			in.write(data, read, len);
+			read += len;
 		}
 		return len;
 	}
 	
 	public int writeToBytes(Bytes in, int len) {
-		int all = available();
-		if(all > 0) {
-			in.write(read(len));
+		if(write - read > 0) {
+			checkReadable(len);
+			in.write(data, read, len);
+			read += len;
 		}
 		return len;
 	}
 	
 	public int readFromBytes(Bytes out) {
-		int len = out.available();
-		if(len > 0) {
-			write(out.readAll());
-		}
-		return len;
+		return out.writeToBytes(this);
 	}
 	
 	public int readFromBytes(Bytes out, int len) {
 		if(len < 0) {
 			return 0;
 		}
-		write(out.read(len));
-		return len;
+		return out.writeToBytes(this, len);
 	}
 	
-	protected static Bytes wrapByteBuffer(ByteBuffer buffer) {
-		if(!buffer.hasRemaining()) {
-			return new Bytes();
+	public int refCnt() {
+		return 1;
+	}
+	
+	public Bytes retain() {
+		return this;
+	}
+	
+	public void release() {}
+	
+	public Bytes readSlice(int len) {
+		CompositeBytes slice = new CompositeBytes();
+		sliceInto(slice, len);
+		return slice;
+	}
+	
+	protected void sliceInto(CompositeBytes dst, int len) {
+		checkReadable(len);
+		if(len <= 0) {
+			return ;
 		}
-		byte[] bytes = new byte[buffer.remaining()];
-		for(int i = 0; i < bytes.length; i++) {
-			bytes[i] = buffer.get();
+		dst.addView(ByteBuffer.wrap(data, read, len).slice(), null);
+		read += len;
+		shared = true;
+	}
+	
+	protected long readNumber(int len, boolean littleEndian) {
+		checkReadable(len);
+		long v = 0;
+		int r = read;
+		if(littleEndian) {
+			for(int i = r + len - 1; i >= r; i--) {
+				v = (v << 8) | (data[i] & 0xff);
+			}
+		} else {
+			for(int i = r; i < r + len; i++) {
+				v = (v << 8) | (data[i] & 0xff);
+			}
 		}
+		read = r + len;
+		return v;
+	}
+	
+	protected void writeNumber(long v, int len, boolean littleEndian) {
+		ensureWritable(len);
+		int w = write;
+		if(littleEndian) {
+			for(int i = w; i < w + len; i++) {
+				data[i] = (byte) v;
+				v >>>= 8;
+			}
+		} else {
+			for(int i = w + len - 1; i >= w; i--) {
+				data[i] = (byte) v;
+				v >>>= 8;
+			}
+		}
+		write = w + len;
+	}
+	
+	private void checkReadable(int len) {
+		if(len > write - read) {
+			throw new IllegalArgumentException("length out of range, max = " +
+						(write - read) +", provide = " + len);
+		}
+	}
+	
+	protected static Bytes wrapByteBuffer(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
 		return new Bytes(bytes);
 	}
 }
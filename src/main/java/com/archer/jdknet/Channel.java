@@ -4,47 +4,81 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.UUID;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Channel {
 
-	private static final int READ_BUF_SIZE = 1024*1024;
-	private static final int WRITE_BUF_SIZE = 1024*1024;
+	protected static final int DEFAULT_LOW_WATER_MARK = 32 * 1024;
+	protected static final int DEFAULT_HIGH_WATER_MARK = 64 * 1024;
 	
-    private static final int READ_TRY = 17;
+	private static final int MAX_GATHER = 1024;
 	
-    private String id;
+	protected static final int DEFAULT_MAX_READS_PER_EVENT = 16;
+	
+    private final long id;
+    
+    private String idString;
     
 	private String host;
 	private Integer port;
 	
-    private ByteBuffer peerReadBuf;
-	private ByteBuffer peerWriteBuf;
+	private ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+	private volatile long pendingBytes = 0;
+	private long outboundCapacity = 0;
+	private int lowWaterMark, highWaterMark;
+	private volatile boolean writable = true;
+	private ByteBuffer[] gather = new ByteBuffer[16];
+	private AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private Runnable flushTask = this::flushTask;
 	
 	private SelectionKey key;
 	private HandlerWorker worker;
+	private EventLoop loop;
+	
+	private RecvBufferPredictor predictor;
+	private int maxReadsPerEvent;
+	private boolean zeroCopyRead;
 	
-	private ChannelState state;
+	private volatile ChannelState state;
 	private boolean clientMode;
 	
 	private ClientChannel cli;
 	
+	private int lane = -1;
+	
+	private volatile AtomicReferenceArray<Object> attrs;
+	
+	private Pipeline pipeline;
+	
+	private volatile long lastReadTime, lastWriteTime;
+	
+	private volatile boolean handshaking = false;
+	
+	private volatile boolean readPaused = false;
+	private AtomicReference<Bytes> stalledRead = new AtomicReference<>();
+	
 	private ReentrantLock readLock = new ReentrantLock(true);
 	private ReentrantLock writeLock = new ReentrantLock(true);
 	
-	protected Channel(String host, Integer port, SelectionKey key, HandlerWorker worker) {
-		this.id = UUID.randomUUID().toString().replace("-", "");
+	protected Channel(String host, Integer port, HandlerWorker worker) {
+		this.id = ChannelId.next();
 		this.host = host;
 		this.port = port;
-		this.key = key;
 		this.worker = worker;
-		this.peerReadBuf = ByteBuffer.allocateDirect(READ_BUF_SIZE);
-		this.peerWriteBuf = ByteBuffer.allocateDirect(WRITE_BUF_SIZE);
+		this.lowWaterMark = worker.lowWaterMark();
+		this.highWaterMark = worker.highWaterMark();
+		this.maxReadsPerEvent = worker.maxReadsPerEvent();
+		this.zeroCopyRead = worker.zeroCopyRead();
+		this.pipeline = new Pipeline(worker.pipeline());
+		this.predictor = new RecvBufferPredictor();
 		this.state = ChannelState.OPEN;
 		this.clientMode = false;
-		peerReadBuf.flip();
-		peerWriteBuf.flip();
+		this.lastReadTime = this.lastWriteTime = System.nanoTime();
 	}
 	
 	protected SocketChannel socketChannel() {
@@ -59,14 +93,93 @@ public class Channel {
 		return worker;
 	}
 	
+	protected EventLoop loop() {
+		return loop;
+	}
+	
+	protected long lastReadTime() {
+		return lastReadTime;
+	}
+	
+	protected long lastWriteTime() {
+		return lastWriteTime;
+	}
+	
+	protected void register(EventLoop loop, SelectionKey key) {
+		this.loop = loop;
+		this.key = key;
+	}
+	
 //	protected Bytes readBytes() {
 //		return readBytes;
 //	}
 	
+	protected int lane() {
+		return lane;
+	}
+	
+	protected void lane(int lane) {
+		this.lane = lane;
+	}
+	
 	protected void clientMode(boolean mode) {
 		clientMode = mode;
 	}
 	
+	public Pipeline pipeline() {
+		return pipeline;
+	}
+	
+	protected void pipeline(Pipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+	
+	protected void handshakeStarted() {
+		handshaking = true;
+	}
+	
+	protected void handshakeCompleted() {
+		handshaking = false;
+		if(clientMode && cli != null) {
+			cli.connected(this);
+		}
+	}
+	
+	protected boolean isHandshaking() {
+		return handshaking;
+	}
+	
+	protected boolean isReadPaused() {
+		return readPaused;
+	}
+	
+	protected void pauseRead(Bytes stalled) {
+		readPaused = true;
+		stalledRead.set(stalled);
+		if(key != null && key.isValid()) {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+		}
+		if(state == ChannelState.CLOSED) {
+			releaseStalledRead();
+		}
+	}
+	
+	protected Bytes resumeRead() {
+		Bytes stalled = stalledRead.getAndSet(null);
+		readPaused = false;
+		if(key != null && key.isValid()) {
+			key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+		}
+		return stalled;
+	}
+	
+	private void releaseStalledRead() {
+		Bytes stalled = stalledRead.getAndSet(null);
+		if(stalled != null) {
+			stalled.release();
+		}
+	}
+	
 	protected void clientChannel(ClientChannel cli) {
 		this.cli = cli;
 	}
@@ -88,11 +201,46 @@ public class Channel {
 	}
 
 	public void close() throws IOException {
-		state = ChannelState.CLOSED;
-		key.channel().close();
-		key.cancel();
+		synchronized(this) {
+			if(state == ChannelState.CLOSED) {
+				return ;
+			}
+			state = ChannelState.CLOSED;
+		}
+		EventLoop l = loop;
+		if(l != null && l.isRunning() && !l.inLoop()) {
+			l.execute(this::doClose);
+			return ;
+		}
+		doClose();
+	}
+	
+	private void doClose() {
+		writeLock.lock();
+		try {
+			flushOutbound();
+		} catch(IOException ignore) {
+		} finally {
+			ByteBuffer buf;
+			while((buf = outbound.poll()) != null) {
+				BufferPool.release(buf);
+			}
+			pendingBytes = 0;
+			outboundCapacity = 0;
+			writeLock.unlock();
+		}
+		if(key != null) {
+			try {
+				key.channel().close();
+			} catch(IOException ignore) {}
+			key.cancel();
+		}
+		releaseStalledRead();
+		if(loop != null) {
+			loop.deregister(this);
+		}
 		if(clientMode && cli != null) {
-			cli.close();
+			cli.channelClosed(this);
 		}
 	}
 	
@@ -109,8 +257,11 @@ public class Channel {
 			if(readBytes == null) {
 				return 0;
 			}
-			int count = readBytes.writeToBytes(in);
-			return count;
+			try {
+				return readBytes.writeToBytes(in);
+			} finally {
+				readBytes.release();
+			}
 		} finally {
 			readLock.unlock();
 		}
@@ -124,21 +275,178 @@ public class Channel {
 			return ;
 		}
 
+		boolean changed = false;
 		writeLock.lock();
 		try {
-			SocketChannel client = (SocketChannel) key.channel();
+			ByteBuffer tail = outbound.peekLast();
+			if(tail != null && tail.limit() < tail.capacity()) {
+				int pos = tail.position(), limit = tail.limit();
+				tail.position(limit);
+				tail.limit(tail.capacity());
+				out.writeToByteBuffer(tail);
+				pendingBytes += tail.position() - limit;
+				tail.limit(tail.position());
+				tail.position(pos);
+			}
 			while(out.available() > 0) {
-				peerWriteBuf.clear();
-				out.writeToByteBuffer(peerWriteBuf);
-				peerWriteBuf.flip();
-				key.interestOps(SelectionKey.OP_READ);
-				while(peerWriteBuf.hasRemaining()) {
-					client.write(peerWriteBuf);
-				}	
+				ByteBuffer buf = BufferPool.acquire(Math.min(out.available(), BufferPool.MAX_SIZE));
+				out.writeToByteBuffer(buf);
+				buf.flip();
+				pendingBytes += buf.remaining();
+				outboundCapacity += buf.capacity();
+				outbound.offer(buf);
+			}
+			if(writable && outboundCapacity > highWaterMark) {
+				writable = false;
+				changed = true;
 			}
 		} finally {
 			writeLock.unlock();	
 		}
+		EventLoop l = loop;
+		if(l != null) {
+			Thread t = Thread.currentThread();
+			if(l.inLoop()) {
+				if(flushScheduled.compareAndSet(false, true)) {
+					l.execute(flushTask);
+				}
+			} else if(t instanceof ExecutorGroup.GroupThread) {
+				((ExecutorGroup.GroupThread) t).deferFlush(this);
+			}
+		}
+		if(changed) {
+			worker.onWritabilityChanged(this);
+		}
+	}
+	
+	public void flush() throws IOException {
+		EventLoop l = loop;
+		if(l != null && !l.inLoop()) {
+			if(flushScheduled.compareAndSet(false, true)) {
+				l.execute(flushTask);
+			}
+			return ;
+		}
+		flushScheduled.set(false);
+		onWritable();
+	}
+	
+	public void execute(Runnable task) {
+		EventLoop l = loop;
+		if(l == null) {
+			throw new ChannelException("channel is not registered to an event loop.");
+		}
+		l.execute(task);
+	}
+	
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		EventLoop l = loop;
+		if(l == null) {
+			throw new ChannelException("channel is not registered to an event loop.");
+		}
+		return l.schedule(task, delay, unit);
+	}
+	
+	private void flushTask() {
+		if(!isOpen()) {
+			return ;
+		}
+		try {
+			flushScheduled.set(false);
+			onWritable();
+		} catch(IOException e) {
+			worker.onError(key, e);
+			worker.onClose(key);
+		}
+	}
+	
+	public void writeAndFlush(Bytes out) throws IOException {
+		write(out);
+		flush();
+	}
+	
+	public boolean isWritable() {
+		return writable;
+	}
+	
+	public long pendingWriteBytes() {
+		return pendingBytes;
+	}
+	
+	public void writeBufferWaterMark(int low, int high) {
+		if(low < 0 || high < low) {
+			throw new IllegalArgumentException("invalid water mark, low = " + low + ", high = " + high);
+		}
+		this.lowWaterMark = low;
+		this.highWaterMark = high;
+	}
+	
+	protected void onWritable() throws IOException {
+		boolean changed = false;
+		writeLock.lock();
+		try {
+			flushOutbound();
+			if(!writable && outboundCapacity <= lowWaterMark) {
+				writable = true;
+				changed = true;
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		if(changed) {
+			worker.onWritabilityChanged(this);
+		}
+	}
+	
+	private void flushOutbound() throws IOException {
+		if(key == null || !key.isValid()) {
+			return ;
+		}
+		SocketChannel client = (SocketChannel) key.channel();
+		if(!client.isConnected()) {
+			return ;
+		}
+		while(!outbound.isEmpty()) {
+			int n = 0;
+			for(ByteBuffer buf: outbound) {
+				if(n >= MAX_GATHER) {
+					break;
+				}
+				if(n >= gather.length) {
+					ByteBuffer[] tmp = new ByteBuffer[gather.length << 1];
+					System.arraycopy(gather, 0, tmp, 0, n);
+					gather = tmp;
+				}
+				gather[n++] = buf;
+			}
+			long count = client.write(gather, 0, n);
+			pendingBytes -= count;
+			if(count > 0) {
+				lastWriteTime = System.nanoTime();
+			}
+			for(int i = 0; i < n; i++) {
+				gather[i] = null;
+			}
+			ByteBuffer head;
+			while((head = outbound.peek()) != null && !head.hasRemaining()) {
+				outboundCapacity -= head.capacity();
+				BufferPool.release(outbound.poll());
+			}
+			if(count <= 0 || head != null && n < MAX_GATHER) {
+				break;
+			}
+		}
+		if(state == ChannelState.CLOSED) {
+			return ;
+		}
+		int ops = key.interestOps();
+		if(outbound.isEmpty()) {
+			if((ops & SelectionKey.OP_WRITE) != 0) {
+				key.interestOps(ops & ~SelectionKey.OP_WRITE);
+			}
+		} else if((ops & SelectionKey.OP_WRITE) == 0) {
+			key.interestOps(ops | SelectionKey.OP_WRITE);
+		}
 	}
 	
 	public String remoteHost() {
@@ -149,30 +457,140 @@ public class Channel {
 		return port;
 	}
 	
-	public String getId() {
+	public long id() {
 		return id;
 	}
 	
+	public String getId() {
+		String s = idString;
+		if(s == null) {
+			s = ChannelId.render(id);
+			idString = s;
+		}
+		return s;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public <T> T attr(AttributeKey<T> key) {
+		AtomicReferenceArray<Object> a = attrs;
+		int i = key.id();
+		if(a == null || i >= a.length()) {
+			return null;
+		}
+		return (T) a.get(i);
+	}
+	
+	public <T> void attr(AttributeKey<T> key, T value) {
+		int i = key.id();
+		AtomicReferenceArray<Object> a;
+		do {
+			a = attrs(i);
+			a.set(i, value);
+		} while(a != attrs);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public <T> T attrIfAbsent(AttributeKey<T> key, T value) {
+		int i = key.id();
+		for(;;) {
+			AtomicReferenceArray<Object> a = attrs(i);
+			Object old = a.get(i);
+			if(old == null && !a.compareAndSet(i, null, value)) {
+				continue;
+			}
+			if(a == attrs) {
+				return old == null ? value : (T) old;
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public <T> T removeAttr(AttributeKey<T> key) {
+		int i = key.id();
+		for(;;) {
+			AtomicReferenceArray<Object> a = attrs;
+			if(a == null || i >= a.length()) {
+				return null;
+			}
+			Object old = a.getAndSet(i, null);
+			if(a == attrs) {
+				return (T) old;
+			}
+		}
+	}
+	
+	private AtomicReferenceArray<Object> attrs(int index) {
+		AtomicReferenceArray<Object> a = attrs;
+		if(a != null && index < a.length()) {
+			return a;
+		}
+		synchronized(this) {
+			a = attrs;
+			if(a == null || index >= a.length()) {
+				int len = Math.max(index + 1, AttributeKey.count());
+				AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(len);
+				if(a != null) {
+					for(int i = 0; i < a.length(); i++) {
+						grown.set(i, a.get(i));
+					}
+				}
+				attrs = a = grown;
+			}
+			return a;
+		}
+	}
+	
 	protected Bytes readInternal() throws IOException {
-		int count = 0;
 		SocketChannel client = (SocketChannel) key.channel();
+		ByteBuffer peerReadBuf = BufferPool.acquire(predictor.guess());
+		int total = 0;
 		readLock.lock();
 		try {
-			peerReadBuf.clear();
-			while(count < READ_TRY && peerReadBuf.hasRemaining()) {
-				int readBytes = client.read(peerReadBuf);
-				if (readBytes == 0) {
-					count++;
-				} else if(readBytes < 0) {
+			for(int i = 0; i < maxReadsPerEvent; i++) {
+				if(!peerReadBuf.hasRemaining()) {
+					if(peerReadBuf.capacity() >= BufferPool.MAX_SIZE) {
+						break;
+					}
+					ByteBuffer larger = BufferPool.acquire(peerReadBuf.capacity() << 1);
+					peerReadBuf.flip();
+					larger.put(peerReadBuf);
+					BufferPool.release(peerReadBuf);
+					peerReadBuf = larger;
+				}
+				int attempt = peerReadBuf.remaining();
+				int count = client.read(peerReadBuf);
+				if(count < 0) {
 					this.prepareClose();
 					break;
 				}
+				if(count == 0) {
+					break;
+				}
+				total += count;
+				if(count < attempt) {
+					break;
+				}
 			}
-			peerReadBuf.flip();
-			return Bytes.wrapByteBuffer(peerReadBuf);
+			predictor.record(total);
+		} catch(IOException e) {
+			BufferPool.release(peerReadBuf);
+			throw e;
 		} finally {
 			readLock.unlock();
 		}
+		if(total <= 0) {
+			BufferPool.release(peerReadBuf);
+			return null;
+		}
+		lastReadTime = System.nanoTime();
+		peerReadBuf.flip();
+		if(zeroCopyRead) {
+			return new PooledBytes(peerReadBuf);
+		}
+		Bytes read = new Bytes(total);
+		read.readFromDirectBuffer(peerReadBuf);
+		BufferPool.release(peerReadBuf);
+		return read;
 	}
 	
 	static enum ChannelState {
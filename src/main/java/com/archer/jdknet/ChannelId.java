@@ -0,0 +1,48 @@
+package com.archer.jdknet;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class ChannelId {
+
+	private static final int STRIPE_BITS = 4;
+	private static final int STRIPES = 1 << STRIPE_BITS;
+	private static final int PAD = 8;
+
+	private static final int PREFIX_BITS = 16;
+	private static final long SEQ_MASK = (1L << (64 - PREFIX_BITS)) - 1;
+
+	private static final long PREFIX = processPrefix() << (64 - PREFIX_BITS);
+
+	private static final AtomicLongArray counters = new AtomicLongArray(STRIPES * PAD);
+
+	private ChannelId() {}
+
+	protected static long next() {
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		long n = counters.getAndIncrement(stripe * PAD);
+		return PREFIX | (((n << STRIPE_BITS) | stripe) & SEQ_MASK);
+	}
+
+	protected static String render(long id) {
+		String prefix = Long.toHexString(id >>> (64 - PREFIX_BITS));
+		String seq = Long.toHexString(id & SEQ_MASK);
+		StringBuilder sb = new StringBuilder(17);
+		for(int i = prefix.length(); i < PREFIX_BITS >> 2; i++) {
+			sb.append('0');
+		}
+		return sb.append(prefix).append('-').append(seq).toString();
+	}
+
+	private static long processPrefix() {
+		long seed = System.nanoTime() ^ System.currentTimeMillis();
+		try {
+			String name = ManagementFactory.getRuntimeMXBean().getName();
+			seed = seed * 31 + name.hashCode();
+		} catch(Throwable ignore) {}
+		seed ^= seed >>> 33;
+		seed *= 0xff51afd7ed558ccdL;
+		seed ^= seed >>> 33;
+		return seed & ((1L << PREFIX_BITS) - 1);
+	}
+}
@@ -0,0 +1,6 @@
+package com.archer.jdknet;
+
+public interface ChannelInitializer {
+	
+	void initChannel(Channel channel) throws Exception;
+}
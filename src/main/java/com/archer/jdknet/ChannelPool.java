@@ -0,0 +1,407 @@
+package com.archer.jdknet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ChannelPool {
+
+	private static final int DEFAULT_MAX_PER_ENDPOINT = 8;
+	private static final long DEFAULT_MAX_IDLE_MILLIS = 60_000;
+	private static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 10_000;
+	private static final long MIN_EVICT_INTERVAL_MILLIS = 100;
+
+	private Initializer initializer;
+
+	private EventLoopGroup group;
+
+	private int maxPerEndpoint = DEFAULT_MAX_PER_ENDPOINT;
+
+	private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+
+	private long acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+
+	private ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+	private volatile boolean closed = false;
+
+	private Timeout evictor;
+
+	public ChannelPool(Initializer initializer) {
+		if(initializer == null) {
+			throw new NullPointerException();
+		}
+		this.initializer = initializer;
+	}
+
+	public ChannelPool maxPerEndpoint(int max) {
+		if(max <= 0) {
+			throw new IllegalArgumentException("max connections per endpoint must be positive, provide = " + max);
+		}
+		this.maxPerEndpoint = max;
+		return this;
+	}
+
+	public ChannelPool maxIdleTime(long time, TimeUnit unit) {
+		if(time <= 0) {
+			throw new IllegalArgumentException("max idle time must be positive, provide = " + time);
+		}
+		this.maxIdleMillis = unit.toMillis(time);
+		return this;
+	}
+
+	public ChannelPool acquireTimeout(long time, TimeUnit unit) {
+		if(time <= 0) {
+			throw new IllegalArgumentException("acquire timeout must be positive, provide = " + time);
+		}
+		this.acquireTimeoutMillis = unit.toMillis(time);
+		return this;
+	}
+
+	public ChannelPool eventLoopGroup(EventLoopGroup group) {
+		this.group = group;
+		return this;
+	}
+
+	public ClientChannel acquire(String host, int port) throws IOException {
+		if(closed) {
+			throw new ChannelException("channel pool is closed.");
+		}
+		startEvictor();
+		Endpoint ep = endpoints.computeIfAbsent(host + ":" + port, k -> new Endpoint(host, port));
+		List<ClientChannel> dead = new ArrayList<>();
+		CompletableFuture<ClientChannel> waiter = null;
+		ClientChannel ch = null;
+		synchronized(ep) {
+			ch = ep.pollHealthy(dead);
+			if(ch != null) {
+				ep.leased.add(ch);
+			} else {
+				if(ep.total < maxPerEndpoint) {
+					ep.total++;
+				} else {
+					waiter = new CompletableFuture<>();
+					ep.waiters.offer(waiter);
+				}
+			}
+		}
+		closeAll(dead);
+		if(ch != null) {
+			return ch;
+		}
+		if(waiter == null) {
+			return create(ep);
+		}
+		try {
+			return waiter.get(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch(TimeoutException | InterruptedException e) {
+			synchronized(ep) {
+				ep.waiters.remove(waiter);
+			}
+			if(!waiter.cancel(false)) {
+				return waiter.join();
+			}
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+				throw new ChannelException("acquire connection to " + ep.host + ":" + ep.port + " interrupted.");
+			}
+			throw new ChannelException("acquire connection to " + ep.host + ":" + ep.port +
+					" timeout after " + acquireTimeoutMillis + "ms.");
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new ChannelException(cause);
+		}
+	}
+
+	public void release(ClientChannel ch) {
+		if(ch == null) {
+			return ;
+		}
+		Endpoint ep = endpoints.get(ch.endpoint());
+		if(ep == null) {
+			throw new ChannelException("channel to " + ch.endpoint() + " is not leased from this pool.");
+		}
+		synchronized(ep) {
+			if(!ep.leased.remove(ch)) {
+				throw new ChannelException("channel to " + ch.endpoint() + " is not leased from this pool.");
+			}
+		}
+		if(closed || !ch.isAlive()) {
+			ch.close();
+			synchronized(ep) {
+				ep.total--;
+			}
+			dispatch(ep);
+			return ;
+		}
+		synchronized(ep) {
+			CompletableFuture<ClientChannel> waiter;
+			while((waiter = ep.waiters.poll()) != null) {
+				if(waiter.complete(ch)) {
+					ep.leased.add(ch);
+					return ;
+				}
+			}
+			ep.idle.offerFirst(new IdleChannel(ch, System.nanoTime()));
+		}
+	}
+
+	public int idleCount(String host, int port) {
+		Endpoint ep = endpoints.get(host + ":" + port);
+		if(ep == null) {
+			return 0;
+		}
+		synchronized(ep) {
+			return ep.idle.size();
+		}
+	}
+
+	public int connectionCount(String host, int port) {
+		Endpoint ep = endpoints.get(host + ":" + port);
+		if(ep == null) {
+			return 0;
+		}
+		synchronized(ep) {
+			return ep.total;
+		}
+	}
+
+	public void close() {
+		synchronized(this) {
+			if(closed) {
+				return ;
+			}
+			closed = true;
+			if(evictor != null) {
+				evictor.cancel();
+				evictor = null;
+			}
+		}
+		List<ClientChannel> idle = new ArrayList<>();
+		for(Endpoint ep: endpoints.values()) {
+			synchronized(ep) {
+				IdleChannel e;
+				while((e = ep.idle.poll()) != null) {
+					idle.add(e.channel);
+					ep.total--;
+				}
+				CompletableFuture<ClientChannel> waiter;
+				while((waiter = ep.waiters.poll()) != null) {
+					waiter.completeExceptionally(new ChannelException("channel pool is closed."));
+				}
+			}
+		}
+		closeAll(idle);
+	}
+
+	private ClientChannel create(Endpoint ep) throws IOException {
+		ClientChannel ch = null;
+		try {
+			ch = newChannel(ep);
+			awaitConnected(ep, ch.connectAsync());
+			synchronized(ep) {
+				ep.leased.add(ch);
+			}
+			return ch;
+		} catch(Exception e) {
+			connectFailed(ep, ch);
+			if(e instanceof IOException) {
+				throw (IOException) e;
+			}
+			if(e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new ChannelException(e);
+		}
+	}
+
+	private ClientChannel newChannel(Endpoint ep) throws Exception {
+		ClientChannel ch = new ClientChannel(ep.host, ep.port);
+		if(group != null) {
+			ch.eventLoopGroup(group);
+		}
+		try {
+			initializer.initChannel(ch);
+		} catch(Exception e) {
+			ch.close();
+			throw e;
+		}
+		return ch;
+	}
+
+	private void connectFailed(Endpoint ep, ClientChannel ch) {
+		if(ch != null) {
+			ch.close();
+		}
+		synchronized(ep) {
+			ep.total--;
+		}
+		dispatch(ep);
+	}
+
+	private void awaitConnected(Endpoint ep, CompletableFuture<Channel> future) throws IOException {
+		try {
+			future.get(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch(TimeoutException e) {
+			throw new ChannelException("connect to " + ep.host + ":" + ep.port +
+					" timeout after " + acquireTimeoutMillis + "ms.");
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ChannelException("connect to " + ep.host + ":" + ep.port + " interrupted.");
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new ChannelException(cause);
+		}
+	}
+
+	private void dispatch(Endpoint ep) {
+		CompletableFuture<ClientChannel> waiter;
+		synchronized(ep) {
+			if(closed || ep.total >= maxPerEndpoint) {
+				return ;
+			}
+			do {
+				waiter = ep.waiters.poll();
+			} while(waiter != null && waiter.isDone());
+			if(waiter == null) {
+				return ;
+			}
+			ep.total++;
+		}
+		ClientChannel ch;
+		CompletableFuture<Channel> connected;
+		try {
+			ch = newChannel(ep);
+			connected = ch.connectAsync();
+		} catch(Exception e) {
+			waiter.completeExceptionally(e);
+			connectFailed(ep, null);
+			return ;
+		}
+		CompletableFuture<ClientChannel> w = waiter;
+		connected.whenComplete((c, t) -> {
+			if(t != null) {
+				w.completeExceptionally(t);
+				connectFailed(ep, ch);
+			} else {
+				synchronized(ep) {
+					ep.leased.add(ch);
+				}
+				if(!w.complete(ch)) {
+					release(ch);
+				}
+			}
+		});
+	}
+
+	private synchronized void startEvictor() throws IOException {
+		if(evictor != null || closed) {
+			return ;
+		}
+		EventLoopGroup g = group != null ? group : ClientChannel.defaultGroup();
+		if(!g.isAlive()) {
+			g.start();
+		}
+		EventLoop loop = g.next();
+		long interval = Math.max(maxIdleMillis >> 1, MIN_EVICT_INTERVAL_MILLIS);
+		evictor = loop.schedule(new Runnable() {
+			@Override
+			public void run() {
+				evictIdle();
+				synchronized(ChannelPool.this) {
+					if(!closed) {
+						evictor = loop.schedule(this, interval, TimeUnit.MILLISECONDS);
+					}
+				}
+			}
+		}, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void evictIdle() {
+		long now = System.nanoTime();
+		long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+		List<ClientChannel> evicted = new ArrayList<>();
+		for(Endpoint ep: endpoints.values()) {
+			synchronized(ep) {
+				Iterator<IdleChannel> it = ep.idle.descendingIterator();
+				while(it.hasNext()) {
+					IdleChannel e = it.next();
+					if(now - e.since >= maxIdleNanos || !e.channel.isAlive()) {
+						it.remove();
+						ep.total--;
+						evicted.add(e.channel);
+					}
+				}
+			}
+		}
+		closeAll(evicted);
+	}
+
+	private static void closeAll(List<ClientChannel> channels) {
+		for(ClientChannel ch: channels) {
+			ch.close();
+		}
+	}
+
+	public static interface Initializer {
+
+		void initChannel(ClientChannel channel) throws Exception;
+	}
+
+	private static class Endpoint {
+
+		String host;
+		int port;
+		int total = 0;
+		ArrayDeque<IdleChannel> idle = new ArrayDeque<>();
+		Set<ClientChannel> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+		ArrayDeque<CompletableFuture<ClientChannel>> waiters = new ArrayDeque<>();
+
+		Endpoint(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+
+		ClientChannel pollHealthy(List<ClientChannel> dead) {
+			IdleChannel e;
+			while((e = idle.pollFirst()) != null) {
+				if(e.channel.isAlive()) {
+					return e.channel;
+				}
+				total--;
+				dead.add(e.channel);
+			}
+			return null;
+		}
+	}
+
+	private static class IdleChannel {
+
+		ClientChannel channel;
+		long since;
+
+		IdleChannel(ClientChannel channel, long since) {
+			this.channel = channel;
+			this.since = since;
+		}
+	}
+}
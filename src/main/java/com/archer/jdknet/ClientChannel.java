@@ -2,29 +2,46 @@ package com.archer.jdknet;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.CancelledKeyException;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
+import java.net.SocketOption;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClientChannel {
 
-	private static ClientWorkerThread workerThread;
-	private static Selector selector;
-	private static volatile boolean running = false;
-    private static ConcurrentHashMap<SelectionKey, ClientChannel> 
-    						channelCache = new ConcurrentHashMap<>();
+	private static final String LOOP_PREFIX = "jdknet-client";
+	
+	private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 10_000;
+	
+	private static EventLoopGroup defaultGroup;
 	
 	private String host;
 	private int port;
 	
 	private HandlerWorker worker;
-	private Channel channel;
-	private SelectionKey key;
+	private boolean ownWorker = true;
+	private volatile Channel channel;
+	private EventLoopGroup group;
+	
+	private SocketOptions options = new SocketOptions();
 	
 	private volatile boolean connected = false;
+	private AtomicBoolean active = new AtomicBoolean(false);
+	
+	private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	private volatile CompletableFuture<Channel> connectFuture;
+	private volatile Throwable connectCause;
+	
+	private ReconnectPolicy reconnectPolicy;
+	private int attempts = 0;
+	private Timeout reconnectTimeout;
+	
+	private Object pendingLock = new Object();
+	private ArrayDeque<Bytes> pendingWrites = new ArrayDeque<>();
+	private int pendingBytes = 0;
+	private int maxPendingBytes = 0;
 	
 	public ClientChannel(String host, int port) throws IOException {
 		this.host = host;
@@ -33,67 +50,268 @@ public class ClientChannel {
 	
 	public ClientChannel initHandlerWorker() {
 		this.worker = new HandlerWorker();
+		this.ownWorker = true;
 		return this;
 	}
 	
 	public ClientChannel initHandlerWorker(int coreThreads, int maxThreads) {
 		this.worker = new HandlerWorker(coreThreads, maxThreads);
+		this.ownWorker = true;
+		return this;
+	}
+	
+	public ClientChannel initOrderedHandlerWorker(int laneCount) {
+		this.worker = new HandlerWorker();
+		this.worker.orderedThreads(laneCount);
+		this.ownWorker = true;
 		return this;
 	}
 	
 	public ClientChannel initHandlerWorker(HandlerWorker worker) {
 		this.worker = worker;
+		this.ownWorker = false;
+		return this;
+	}
+	
+	public ClientChannel initializer(ChannelInitializer initializer) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+		worker.initializer(initializer);
+		return this;
+	}
+	
+	public ClientChannel eventLoopGroup(EventLoopGroup group) {
+		this.group = group;
+		return this;
+	}
+	
+	public <T> ClientChannel option(SocketOption<T> option, T value) {
+		options.set(option, value);
+		return this;
+	}
+	
+	public ClientChannel connectTimeout(long timeout, TimeUnit unit) {
+		if(timeout < 0) {
+			throw new IllegalArgumentException("connect timeout can not be negative, provide = " + timeout);
+		}
+		this.connectTimeoutMillis = unit.toMillis(timeout);
+		return this;
+	}
+	
+	public ClientChannel reconnect(ReconnectPolicy policy) {
+		this.reconnectPolicy = policy;
 		return this;
 	}
 	
+	public ClientChannel pendingWrites(int maxBytes) {
+		if(maxBytes < 0) {
+			throw new IllegalArgumentException("max pending bytes can not be negative, provide = " + maxBytes);
+		}
+		this.maxPendingBytes = maxBytes;
+		return this;
+	}
+	
+	public CompletableFuture<Channel> connectAsync() {
+		CompletableFuture<Channel> future;
+		synchronized(pendingLock) {
+			if(connected) {
+				return CompletableFuture.completedFuture(channel);
+			}
+			future = connectFuture;
+			if(future != null && !future.isDone()) {
+				return future;
+			}
+			future = connectFuture = new CompletableFuture<>();
+		}
+		try {
+			connect();
+		} catch(IOException e) {
+			if(reconnectPolicy == null) {
+				future.completeExceptionally(e);
+			}
+		}
+		return future;
+	}
+	
 	public void connect() throws IOException {
-		if(connected) {
+		if(connected || !active.compareAndSet(false, true)) {
 			return ;
 		}
+		synchronized(pendingLock) {
+			attempts = 0;
+			connectCause = null;
+		}
+		try {
+			doConnect();
+		} catch(IOException e) {
+			if(reconnectPolicy != null) {
+				scheduleReconnect();
+			} else {
+				active.set(false);
+			}
+			throw e;
+		}
+	}
+	
+	private void doConnect() throws IOException {
 		if(worker == null) {
 			initHandlerWorker();
 		}
 		if(!worker.isAlive()) {
 			worker.reStart();
 		}
-		if(selector == null || !selector.isOpen()) {
-			selector = Selector.open();
-		}
+		EventLoopGroup clientGroup = clientGroup();
 		SocketChannel socketChannel = SocketChannel.open();
-		socketChannel.configureBlocking(false);
-		key = socketChannel.register(selector, SelectionKey.OP_CONNECT);
-		channel = new Channel(host, port, key, worker);
-		channel.clientMode(true);
-		channel.clientChannel(this);
-		key.attach(channel);
-		channelCache.put(key, this);
+		try {
+			socketChannel.configureBlocking(false);
+			options.applyTo(socketChannel);
+		} catch(IOException | RuntimeException e) {
+			socketChannel.close();
+			throw e;
+		}
+		Channel ch = new Channel(host, port, worker);
+		ch.clientMode(true);
+		ch.clientChannel(this);
+		try {
+			worker.initChannel(ch);
+		} catch(Exception e) {
+			socketChannel.close();
+			throw new ChannelException("init channel failed. " + e.getLocalizedMessage());
+		}
+		channel = ch;
+		active.set(true);
 		
-		socketChannel.connect(new InetSocketAddress(host, port));
-		if(!running) {
-			running = true;
-			workerThread = new ClientWorkerThread();
-			workerThread.start();
+		EventLoop loop = clientGroup.next();
+		try {
+			socketChannel.connect(new InetSocketAddress(host, port));
+		} catch(IOException | RuntimeException e) {
+			socketChannel.close();
+			throw e;
+		}
+		loop.register(ch, socketChannel);
+		if(connectTimeoutMillis > 0) {
+			loop.schedule(() -> {
+				if(channel != ch || connected || !ch.isOpen()) {
+					return ;
+				}
+				connectCause = new ChannelException("connect to " + endpoint() + 
+						" timeout after " + connectTimeoutMillis + "ms.");
+				if(ch.key() != null) {
+					worker.onClose(ch.key());
+				} else {
+					try {
+						ch.close();
+					} catch(IOException ignore) {}
+				}
+			}, connectTimeoutMillis, TimeUnit.MILLISECONDS);
 		}
 	}
 	
 	public void send(Bytes out) throws Exception {
+		if(reconnectPolicy != null && !connected) {
+			synchronized(pendingLock) {
+				if(!connected) {
+					if(!active.get() || pendingBytes + out.available() > maxPendingBytes) {
+						throw new ChannelException("connection to " + endpoint() + " is down.");
+					}
+					pendingBytes += out.available();
+					pendingWrites.offer(new Bytes(out.readAll()));
+					return ;
+				}
+			}
+		}
 		worker.handleWrite(channel, out);
+		channel.flush();
 	}
 
     public void close() {
+    	if(!active.compareAndSet(true, false)) {
+    		return ;
+    	}
     	connected = false;
-    	worker.close();
-    	channelCache.remove(key);
-    	key.cancel();
-    	if(channelCache.size() <= 0) {
-    		shutdown();
+    	synchronized(pendingLock) {
+    		if(reconnectTimeout != null) {
+    			reconnectTimeout.cancel();
+    			reconnectTimeout = null;
+    		}
+    		pendingWrites.clear();
+    		pendingBytes = 0;
+    	}
+    	CompletableFuture<Channel> future = connectFuture;
+    	if(future != null && !future.isDone()) {
+    		Throwable cause = connectCause;
+    		future.completeExceptionally(cause != null ? cause :
+    				new ChannelException("connection to " + endpoint() + " closed."));
     	}
+    	if(ownWorker) {
+    		worker.close();
+    	}
+    	try {
+    		channel.close();
+    	} catch(IOException ignore) {}
     }
     
     public boolean isAlive() {
     	return channel.isOpen();
     }
 
+    public ClientChannel workQueue(int capacity, OverflowPolicy policy) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.workQueue(capacity, policy);
+    	return this;
+    }
+    
+    public ClientChannel overflowPolicy(OverflowPolicy policy) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.overflowPolicy(policy);
+    	return this;
+    }
+    
+    public ClientChannel executorGroup(ExecutorGroup group) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.executorGroup(group);
+    	return this;
+    }
+    
+    public int queueDepth() {
+    	return worker == null ? 0 : worker.queueDepth();
+    }
+
+    public ClientChannel writeBufferWaterMark(int low, int high) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.writeBufferWaterMark(low, high);
+    	return this;
+    }
+    
+    public ClientChannel zeroCopyRead(boolean zeroCopy) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.zeroCopyRead(zeroCopy);
+    	return this;
+    }
+    
+    public ClientChannel maxReadsPerEvent(int maxReads) {
+		if(worker == null) {
+			initHandlerWorker();
+		}
+    	worker.maxReadsPerEvent(maxReads);
+    	return this;
+    }
+    
+    public boolean isWritable() {
+    	return channel != null && channel.isWritable();
+    }
+
     public ClientChannel add(Handler ...handlers) {
 		if(worker == null) {
 			initHandlerWorker();
@@ -134,58 +352,105 @@ public class ClientChannel {
     	return worker.handlerInitialized();
     }
     
-    private static void shutdown() {
-    	running = false;
-    	selector.wakeup();
+    protected void connected(Channel ch) {
+    	CompletableFuture<Channel> future;
+    	synchronized(pendingLock) {
+    		if(ch != channel || connected) {
+    			return ;
+    		}
+    		attempts = 0;
+    		connectCause = null;
+    		Bytes out;
+    		while((out = pendingWrites.poll()) != null) {
+    			try {
+    				worker.handleWrite(channel, out);
+    			} catch(Exception e) {
+    				worker.onError(channel.key(), e);
+    			}
+    		}
+    		try {
+    			channel.flush();
+    		} catch(Exception e) {
+    			worker.onError(channel.key(), e);
+    		}
+    		pendingBytes = 0;
+        	connected = true;
+        	future = connectFuture;
+    	}
+    	if(future != null) {
+    		future.complete(ch);
+    	}
+    }
+    
+    protected void connectFailed(Channel ch, Throwable cause) {
+    	if(ch == channel) {
+    		connectCause = cause;
+    	}
     }
     
-    private void handle(SelectionKey sk) throws IOException {
-    	SocketChannel sc = (SocketChannel) sk.channel();
+    protected void channelClosed(Channel ch) {
+    	if(ch != channel) {
+    		return ;
+    	}
+    	connected = false;
+    	if(reconnectPolicy != null && active.get()) {
+    		scheduleReconnect();
+    	} else {
+    		close();
+    	}
+    }
+    
+    private void scheduleReconnect() {
+    	synchronized(pendingLock) {
+    		if(!active.get()) {
+    			return ;
+    		}
+    		if(reconnectTimeout != null && !reconnectTimeout.isExpired() && !reconnectTimeout.isCancelled()) {
+    			return ;
+    		}
+    		attempts++;
+    		if(!reconnectPolicy.canRetry(attempts)) {
+    			System.err.println("reconnect to " + endpoint() + " gave up after " + (attempts - 1) + " attempts.");
+    			pendingWrites.clear();
+    			pendingBytes = 0;
+    			reconnectTimeout = null;
+    			close();
+    			return ;
+    		}
+    		try {
+    			reconnectTimeout = clientGroup().next().schedule(this::reconnectNow,
+    					reconnectPolicy.delayMillis(attempts), TimeUnit.MILLISECONDS);
+    		} catch(IOException e) {
+    			System.err.println("schedule reconnect to " + endpoint() + " failed. " + e.getLocalizedMessage());
+    		}
+    	}
+    }
+    
+    private void reconnectNow() {
+    	if(!active.get() || connected) {
+    		return ;
+    	}
     	try {
-        	if(sk.isConnectable() && sc.finishConnect()) {
-        		connected = true;
-    			worker.onConnect(sk);
-    		} 
-    		if (sk.isReadable()) {
-    			worker.onRead(sk);
-            }
-    	} catch(CancelledKeyException ignore) {
-    		worker.onClose(sk);
+    		doConnect();
+    	} catch(IOException e) {
+    		System.err.println("reconnect to " + endpoint() + " failed. " + e.getLocalizedMessage());
+    		scheduleReconnect();
     	}
     }
     
-    private class ClientWorkerThread extends Thread {
-    	
-    	@Override
-    	public void run() {
-            try {
-            	running = true;
-                while (running) {
-                    if(selector.select() <= 0) {
-                    	continue;
-                    }
-                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-                    while (it.hasNext()) {
-                        SelectionKey sk = it.next();
-                        it.remove();
-                        if(sk.isValid()) {
-                        	ClientChannel clientChannel = channelCache.getOrDefault(sk, null);
-                        	if(clientChannel != null) {
-                        		clientChannel.handle(sk);
-                        	} else {
-                        		sk.cancel();
-                        	}
-                        }
-                    }
-                }
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            } finally {
-                try {
-                    selector.close();
-                } catch(Exception ignore) {}
-                worker.close();
-            }
+    private EventLoopGroup clientGroup() throws IOException {
+		EventLoopGroup clientGroup = group != null ? group : defaultGroup();
+		if(!clientGroup.isAlive()) {
+			clientGroup.start();
+		}
+		return clientGroup;
+    }
+    
+    public static synchronized EventLoopGroup defaultGroup() {
+    	if(defaultGroup == null) {
+    		defaultGroup = new EventLoopGroup(Runtime.getRuntime().availableProcessors(),
+    				EventLoopGroup.Strategy.LEAST_CONNECTIONS, LOOP_PREFIX).daemon(true);
     	}
+    	return defaultGroup;
     }
 }
@@ -0,0 +1,317 @@
+package com.archer.jdknet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CompositeBytes extends RefCountedBytes {
+
+	private static final int DEFAULT_COMPONENTS = 8;
+
+	private List<ByteBuffer> views;
+
+	private List<Bytes> owners;
+
+	private int first;
+
+	private int available;
+
+	public CompositeBytes() {
+		this(DEFAULT_COMPONENTS);
+	}
+
+	public CompositeBytes(int components) {
+		views = new ArrayList<>(components);
+		owners = new ArrayList<>(components);
+	}
+
+	public CompositeBytes addComponent(Bytes in) {
+		in.sliceInto(this, in.available());
+		return this;
+	}
+
+	public int components() {
+		return views.size() - first;
+	}
+
+	public void discardReadComponents() {
+		if(first <= 0) {
+			return ;
+		}
+		List<Bytes> read = owners.subList(0, first);
+		for(Bytes owner: read) {
+			if(owner != null) {
+				owner.release();
+			}
+		}
+		read.clear();
+		views.subList(0, first).clear();
+		first = 0;
+	}
+
+	@Override
+	public int available() {
+		return available;
+	}
+
+	@Override
+	public int cap() {
+		return available;
+	}
+
+	@Override
+	public byte[] readAll() {
+		return read(available);
+	}
+
+	@Override
+	public byte[] array() {
+		byte[] ret = new byte[available];
+		int off = 0;
+		for(int i = first; i < views.size() && off < ret.length; i++) {
+			ByteBuffer view = views.get(i).duplicate();
+			int len = view.remaining();
+			view.get(ret, off, len);
+			off += len;
+		}
+		return ret;
+	}
+
+	@Override
+	public byte byteAt(int index) {
+		if(index < 0 || index >= available) {
+			throw new IllegalArgumentException("index out of range.");
+		}
+		for(int i = first;; i++) {
+			ByteBuffer view = views.get(i);
+			if(index < view.remaining()) {
+				return view.get(view.position() + index);
+			}
+			index -= view.remaining();
+		}
+	}
+
+	@Override
+	public byte[] read(int len) {
+		checkReadable(len);
+		byte[] ret = new byte[len];
+		read(ret, 0, len);
+		return ret;
+	}
+
+	@Override
+	public int read(byte[] out, int off, int len) {
+		checkReadable(len);
+		if(off + len > out.length) {
+			throw new IllegalArgumentException("length out of range " + len);
+		}
+		int remain = len;
+		while(remain > 0) {
+			ByteBuffer view = views.get(first);
+			int count = Math.min(remain, view.remaining());
+			view.get(out, off, count);
+			off += count;
+			remain -= count;
+			skipRead(view);
+		}
+		available -= len;
+		return len;
+	}
+
+	@Override
+	public int readInt8() {
+		checkReadable(1);
+		ByteBuffer view = views.get(first);
+		int i0 = view.get() & 0xff;
+		skipRead(view);
+		available--;
+		return i0;
+	}
+
+	@Override
+	public void write(byte[] in, int off, int len) {
+		if(off + len > in.length) {
+			throw new IllegalArgumentException("length out range, max = " +
+						(in.length - off) +", provide = " + len);
+		}
+		if(len > 0) {
+			addView(ByteBuffer.wrap(Arrays.copyOfRange(in, off, off + len)), null);
+		}
+	}
+
+	@Override
+	public void writeInt8(int i) {
+		addView(ByteBuffer.wrap(new byte[] {(byte) i}), null);
+	}
+
+	@Override
+	public void clear() {
+		first = views.size();
+		available = 0;
+		discardReadComponents();
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst) {
+		transferTo(dst, Math.min(dst.remaining(), available));
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst, int len) {
+		if(dst.remaining() < len) {
+			throw new IllegalArgumentException("Buffer underflow.");
+		}
+		if(len > available) {
+			throw new IllegalArgumentException("Bytes underflow.");
+		}
+		transferTo(dst, len);
+	}
+
+	@Override
+	public void readFromByteBuffer(ByteBuffer src) {
+		readFromDirectBuffer(src);
+	}
+
+	@Override
+	public void readFromDirectBuffer(ByteBuffer src) {
+		if(!src.hasRemaining()) {
+			return ;
+		}
+		byte[] copy = new byte[src.remaining()];
+		src.get(copy);
+		addView(ByteBuffer.wrap(copy), null);
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer buf = ByteBuffer.allocate(available);
+		for(int i = first; i < views.size(); i++) {
+			buf.put(views.get(i).duplicate());
+		}
+		buf.flip();
+		return buf;
+	}
+
+	@Override
+	public int writeToBytes(Bytes in) {
+		return writeToBytes(in, available);
+	}
+
+	@Override
+	public int writeToBytes(Bytes in, int len) {
+		checkReadable(len);
+		int remain = len;
+		while(remain > 0) {
+			ByteBuffer view = views.get(first);
+			int count = Math.min(remain, view.remaining());
+			ByteBuffer src = view.duplicate();
+			src.limit(src.position() + count);
+			in.readFromByteBuffer(src);
+			view.position(src.position());
+			remain -= count;
+			skipRead(view);
+		}
+		available -= len;
+		return len;
+	}
+
+	@Override
+	public int readFromBytes(Bytes out) {
+		int len = out.available();
+		out.sliceInto(this, len);
+		return len;
+	}
+
+	@Override
+	public int readFromBytes(Bytes out, int len) {
+		if(len < 0) {
+			return 0;
+		}
+		out.sliceInto(this, len);
+		return len;
+	}
+
+	@Override
+	protected void sliceInto(CompositeBytes dst, int len) {
+		checkReadable(len);
+		int remain = len;
+		while(remain > 0) {
+			ByteBuffer view = views.get(first);
+			Bytes owner = owners.get(first);
+			int count = Math.min(remain, view.remaining());
+			ByteBuffer slice = view.duplicate();
+			slice.limit(slice.position() + count);
+			dst.addView(slice, owner == null ? null : owner.retain());
+			view.position(slice.limit());
+			remain -= count;
+			skipRead(view);
+		}
+		available -= len;
+	}
+
+	@Override
+	protected long readNumber(int len, boolean littleEndian) {
+		checkReadable(len);
+		long v = 0;
+		if(littleEndian) {
+			for(int i = 0; i < len; i++) {
+				v |= (long) readInt8() << (i << 3);
+			}
+		} else {
+			for(int i = 0; i < len; i++) {
+				v = (v << 8) | readInt8();
+			}
+		}
+		return v;
+	}
+
+	@Override
+	protected void writeNumber(long v, int len, boolean littleEndian) {
+		Bytes number = new Bytes(len);
+		number.writeNumber(v, len, littleEndian);
+		addView(ByteBuffer.wrap(number.array()), null);
+	}
+
+	@Override
+	protected void deallocate() {
+		clear();
+	}
+
+	protected void addView(ByteBuffer view, Bytes owner) {
+		if(first > 0 && first == views.size()) {
+			discardReadComponents();
+		}
+		views.add(view);
+		owners.add(owner);
+		available += view.remaining();
+	}
+
+	private void skipRead(ByteBuffer view) {
+		if(!view.hasRemaining()) {
+			first++;
+		}
+	}
+
+	private void checkReadable(int len) {
+		if(len > available) {
+			throw new IllegalArgumentException("length out of range, max = " +
+					available +", provide = " + len);
+		}
+	}
+
+	private void transferTo(ByteBuffer dst, int len) {
+		int remain = len;
+		while(remain > 0) {
+			ByteBuffer view = views.get(first);
+			int count = Math.min(remain, view.remaining());
+			ByteBuffer src = view.duplicate();
+			src.limit(src.position() + count);
+			dst.put(src);
+			view.position(src.position());
+			remain -= count;
+			skipRead(view);
+		}
+		available -= len;
+	}
+}
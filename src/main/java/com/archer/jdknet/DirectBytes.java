@@ -0,0 +1,314 @@
+package com.archer.jdknet;
+
+import java.nio.ByteBuffer;
+
+public class DirectBytes extends RefCountedBytes {
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocateDirect(0);
+
+	private ByteBuffer buffer;
+
+	private PooledBytes owner;
+
+	private int read;
+
+	private int write;
+
+	public DirectBytes() {
+		this(BufferPool.MIN_SIZE);
+	}
+
+	public DirectBytes(int cap) {
+		buffer = BufferPool.acquire(cap);
+		owner = new PooledBytes(buffer);
+		read = 0;
+		write = 0;
+	}
+
+	@Override
+	public int available() {
+		return write - read;
+	}
+
+	@Override
+	public int cap() {
+		return buffer.capacity();
+	}
+
+	@Override
+	public byte[] readAll() {
+		return read(write - read);
+	}
+
+	@Override
+	public byte[] array() {
+		byte[] ret = new byte[write - read];
+		readable(write - read).get(ret);
+		return ret;
+	}
+
+	@Override
+	public byte byteAt(int index) {
+		if(index >= write - read) {
+			throw new IllegalArgumentException("index out of range.");
+		}
+		return buffer.get(read + index);
+	}
+
+	@Override
+	public byte[] read(int len) {
+		checkReadable(len);
+		byte[] ret = new byte[len];
+		readable(len).get(ret);
+		read += len;
+		return ret;
+	}
+
+	@Override
+	public int read(byte[] out, int off, int len) {
+		checkReadable(len);
+		if(off + len > out.length) {
+			throw new IllegalArgumentException("length out of range " + len);
+		}
+		readable(len).get(out, off, len);
+		read += len;
+		return len;
+	}
+
+	@Override
+	public int readInt8() {
+		checkReadable(1);
+		return buffer.get(read++) & 0xff;
+	}
+
+	@Override
+	public void write(byte[] in, int off, int len) {
+		if(off + len > in.length) {
+			throw new IllegalArgumentException("length out range, max = " +
+						(in.length - off) +", provide = " + len);
+		}
+		ensureWritable(len);
+		writable(len).put(in, off, len);
+		write += len;
+	}
+
+	@Override
+	public void writeInt8(int i) {
+		ensureWritable(1);
+		buffer.put(write++, (byte) i);
+	}
+
+	@Override
+	public void clear() {
+		read = 0;
+		write = 0;
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst) {
+		int len = Math.min(dst.remaining(), write - read);
+		dst.put(readable(len));
+		read += len;
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst, int len) {
+		if(dst.remaining() < len) {
+			throw new IllegalArgumentException("Buffer underflow.");
+		}
+		if(len > write - read) {
+			throw new IllegalArgumentException("Bytes underflow.");
+		}
+		dst.put(readable(len));
+		read += len;
+	}
+
+	@Override
+	public void readFromByteBuffer(ByteBuffer src) {
+		int len = src.remaining();
+		if(len <= 0) {
+			return ;
+		}
+		ensureWritable(len);
+		writable(len).put(src);
+		write += len;
+	}
+
+	@Override
+	public void readFromDirectBuffer(ByteBuffer src) {
+		readFromByteBuffer(src);
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer buf = ByteBuffer.allocate(write - read);
+		buf.put(readable(write - read));
+		return buf;
+	}
+
+	@Override
+	public int writeToBytes(Bytes in) {
+		int len = write - read;
+		if(len > 0) {
+			in.readFromDirectBuffer(readable(len));
+			read += len;
+		}
+		return len;
+	}
+
+	@Override
+	public int writeToBytes(Bytes in, int len) {
+		if(write - read > 0) {
+			checkReadable(len);
+			in.readFromDirectBuffer(readable(len));
+			read += len;
+		}
+		return len;
+	}
+
+	@Override
+	public int readFromBytes(Bytes out) {
+		return out.writeToBytes(this);
+	}
+
+	@Override
+	public int readFromBytes(Bytes out, int len) {
+		if(len < 0) {
+			return 0;
+		}
+		return out.writeToBytes(this, len);
+	}
+
+	@Override
+	protected void sliceInto(CompositeBytes dst, int len) {
+		checkReadable(len);
+		if(len <= 0) {
+			return ;
+		}
+		dst.addView(readable(len), owner.retain());
+		read += len;
+	}
+
+	@Override
+	protected long readNumber(int len, boolean littleEndian) {
+		checkReadable(len);
+		int r = read;
+		long v;
+		switch(len) {
+		case 2:
+			short s = buffer.getShort(r);
+			v = (littleEndian ? Short.reverseBytes(s) : s) & 0xffff;
+			break;
+		case 4:
+			int i = buffer.getInt(r);
+			v = (littleEndian ? Integer.reverseBytes(i) : i) & 0xffffffffL;
+			break;
+		case 8:
+			long l = buffer.getLong(r);
+			v = littleEndian ? Long.reverseBytes(l) : l;
+			break;
+		default:
+			v = 0;
+			if(littleEndian) {
+				for(int j = r + len - 1; j >= r; j--) {
+					v = (v << 8) | (buffer.get(j) & 0xff);
+				}
+			} else {
+				for(int j = r; j < r + len; j++) {
+					v = (v << 8) | (buffer.get(j) & 0xff);
+				}
+			}
+		}
+		read = r + len;
+		return v;
+	}
+
+	@Override
+	protected void writeNumber(long v, int len, boolean littleEndian) {
+		ensureWritable(len);
+		int w = write;
+		switch(len) {
+		case 2:
+			buffer.putShort(w, littleEndian ? Short.reverseBytes((short) v) : (short) v);
+			break;
+		case 4:
+			buffer.putInt(w, littleEndian ? Integer.reverseBytes((int) v) : (int) v);
+			break;
+		case 8:
+			buffer.putLong(w, littleEndian ? Long.reverseBytes(v) : v);
+			break;
+		default:
+			if(littleEndian) {
+				for(int j = w; j < w + len; j++) {
+					buffer.put(j, (byte) v);
+					v >>>= 8;
+				}
+			} else {
+				for(int j = w + len - 1; j >= w; j--) {
+					buffer.put(j, (byte) v);
+					v >>>= 8;
+				}
+			}
+		}
+		write = w + len;
+	}
+
+	@Override
+	protected void deallocate() {
+		PooledBytes old = owner;
+		buffer = EMPTY_BUFFER;
+		owner = null;
+		read = 0;
+		write = 0;
+		if(old != null) {
+			old.release();
+		}
+	}
+
+	private void ensureWritable(int len) {
+		int cap = buffer.capacity();
+		boolean shared = owner != null && owner.refCnt() > 1;
+		if(shared || cap - write + read < len) {
+			int newLen = Math.max(cap, BufferPool.MIN_SIZE);
+			while(newLen - write + read < len) {
+				newLen <<= 1;
+			}
+			ByteBuffer tmp = BufferPool.acquire(newLen);
+			tmp.put(readable(write - read));
+			if(owner != null) {
+				owner.release();
+			}
+			buffer = tmp;
+			owner = new PooledBytes(tmp);
+			write = write - read;
+			read = 0;
+		} else if(cap - write < len) {
+			buffer.limit(write).position(read);
+			buffer.compact();
+			buffer.clear();
+			write = write - read;
+			read = 0;
+		}
+	}
+
+	private ByteBuffer readable(int len) {
+		ByteBuffer view = buffer.duplicate();
+		view.limit(read + len);
+		view.position(read);
+		return view;
+	}
+
+	private ByteBuffer writable(int len) {
+		ByteBuffer view = buffer.duplicate();
+		view.limit(write + len);
+		view.position(write);
+		return view;
+	}
+
+	private void checkReadable(int len) {
+		if(len > write - read) {
+			throw new IllegalArgumentException("length out of range, max = " +
+						(write - read) +", provide = " + len);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package com.archer.jdknet;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class EventLoop implements Runnable {
+
+	private static final AtomicInteger loopCount = new AtomicInteger(0);
+
+	private String name;
+
+	private Selector selector;
+
+	private Thread thread;
+
+	private volatile boolean running;
+
+	private boolean daemon;
+
+	private AtomicInteger channelCount = new AtomicInteger(0);
+
+	private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	private AtomicBoolean wakenUp = new AtomicBoolean(false);
+
+	private HashedWheelTimer timer = new HashedWheelTimer();
+
+	public EventLoop(String prefix) {
+		this.name = prefix + "-" + loopCount.incrementAndGet();
+	}
+
+	protected synchronized void start() throws IOException {
+		if(running) {
+			return ;
+		}
+		selector = Selector.open();
+		running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(daemon);
+		thread.start();
+	}
+
+	protected void shutdown() {
+		running = false;
+		Selector sel = selector;
+		if(sel != null) {
+			sel.wakeup();
+		}
+	}
+
+	protected void daemon(boolean daemon) {
+		this.daemon = daemon;
+	}
+
+	protected boolean isRunning() {
+		return running;
+	}
+
+	protected boolean inLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	protected int channelCount() {
+		return channelCount.get();
+	}
+
+	protected void register(SelectableChannel sc, int ops, Object attachment) {
+		execute(() -> {
+			try {
+				sc.register(selector, ops, attachment);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	protected void register(Channel ch, SocketChannel sc) {
+		channelCount.incrementAndGet();
+		execute(() -> {
+			doRegister(ch, sc);
+		});
+	}
+
+	protected void register(List<Channel> chs, List<SocketChannel> scs) {
+		if(chs.isEmpty()) {
+			return ;
+		}
+		channelCount.addAndGet(chs.size());
+		execute(() -> {
+			for(int i = 0; i < chs.size(); i++) {
+				doRegister(chs.get(i), scs.get(i));
+			}
+		});
+	}
+
+	private void doRegister(Channel ch, SocketChannel sc) {
+		try {
+			boolean pending = sc.isConnectionPending();
+			SelectionKey key = sc.register(selector,
+					pending ? SelectionKey.OP_CONNECT : SelectionKey.OP_READ, ch);
+			ch.register(this, key);
+			if(!pending) {
+				channelActive(ch, key);
+			}
+		} catch (IOException e) {
+			channelCount.decrementAndGet();
+			try {
+				sc.close();
+			} catch(IOException ignore) {}
+			System.err.println("register channel to " + name + " failed. " + e.getLocalizedMessage());
+		}
+	}
+
+	protected void execute(Runnable task) {
+		if(task == null) {
+			throw new NullPointerException();
+		}
+		tasks.offer(task);
+		wakeup();
+	}
+
+	protected Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		Timeout timeout = timer.newTimeout(task, delay, unit);
+		wakeup();
+		return timeout;
+	}
+
+	private void wakeup() {
+		if(!inLoop() && wakenUp.compareAndSet(false, true)) {
+			Selector sel = selector;
+			if(sel != null) {
+				sel.wakeup();
+			}
+		}
+	}
+
+	protected void deregister(Channel ch) {
+		channelCount.decrementAndGet();
+	}
+
+	@Override
+	public void run() {
+		Selector selector = this.selector;
+		try {
+			while(running) {
+				wakenUp.set(false);
+				long wait = tasks.isEmpty() ? timer.millisToNextTick(System.nanoTime()) : 0;
+				if(wait < 0) {
+					selector.select();
+				} else if(wait == 0) {
+					selector.selectNow();
+				} else {
+					selector.select(wait);
+				}
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey sk = it.next();
+					it.remove();
+					if(sk.isValid()) {
+						handle(sk);
+					}
+				}
+				runTasks();
+				timer.expire(System.nanoTime());
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		} finally {
+			for(SelectionKey sk: selector.keys()) {
+				try {
+					sk.channel().close();
+				} catch(Exception ignore) {}
+			}
+			try {
+				selector.close();
+			} catch(Exception ignore) {}
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch(Throwable t) {
+				System.err.println("event loop task failed. " + t.getLocalizedMessage());
+				t.printStackTrace();
+			}
+		}
+	}
+
+	private void channelActive(Channel ch, SelectionKey key) {
+		ClientChannel cli = ch.clientChannel();
+		if(cli != null && ch.pipeline().get(SslHandler.class) != null) {
+			ch.handshakeStarted();
+		}
+		ch.worker().onConnect(key);
+		if(cli != null && !ch.isHandshaking()) {
+			cli.connected(ch);
+		}
+	}
+
+	private void handle(SelectionKey sk) {
+		Object att = sk.attachment();
+		if(att instanceof ServerChannel) {
+			((ServerChannel) att).accept(sk);
+			return ;
+		}
+		Channel ch = (Channel) att;
+		HandlerWorker worker = ch.worker();
+		try {
+			if(sk.isConnectable()) {
+				SocketChannel sc = (SocketChannel) sk.channel();
+				try {
+					if(!sc.finishConnect()) {
+						return ;
+					}
+				} catch(IOException e) {
+					if(ch.clientChannel() != null) {
+						ch.clientChannel().connectFailed(ch, e);
+					}
+					worker.onError(sk, e);
+					worker.onClose(sk);
+					return ;
+				}
+				sk.interestOps(SelectionKey.OP_READ);
+				channelActive(ch, sk);
+				ch.onWritable();
+			}
+			if(sk.isValid() && sk.isWritable()) {
+				ch.onWritable();
+			}
+			if(sk.isValid() && sk.isReadable()) {
+				worker.onRead(sk);
+			}
+		} catch(CancelledKeyException ignore) {
+			worker.onClose(sk);
+		} catch(IOException e) {
+			worker.onError(sk, e);
+			worker.onClose(sk);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.archer.jdknet;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventLoopGroup {
+
+	private static final String LOOP_PREFIX = "jdknet-loop";
+
+	private EventLoop[] loops;
+
+	private Strategy strategy;
+
+	private AtomicInteger index = new AtomicInteger(0);
+
+	private volatile boolean started = false;
+
+	public EventLoopGroup() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public EventLoopGroup(int loopCount) {
+		this(loopCount, Strategy.ROUND_ROBIN);
+	}
+
+	public EventLoopGroup(int loopCount, Strategy strategy) {
+		this(loopCount, strategy, LOOP_PREFIX);
+	}
+
+	protected EventLoopGroup(int loopCount, Strategy strategy, String prefix) {
+		if(loopCount <= 0) {
+			throw new IllegalArgumentException("loop count must be positive, provide = " + loopCount);
+		}
+		this.strategy = strategy;
+		this.loops = new EventLoop[loopCount];
+		for(int i = 0; i < loopCount; i++) {
+			loops[i] = new EventLoop(prefix);
+		}
+	}
+
+	public synchronized EventLoopGroup daemon(boolean daemon) {
+		for(EventLoop loop: loops) {
+			loop.daemon(daemon);
+		}
+		return this;
+	}
+
+	public synchronized void start() throws IOException {
+		if(started) {
+			return ;
+		}
+		for(EventLoop loop: loops) {
+			loop.start();
+		}
+		started = true;
+	}
+
+	public synchronized void shutdown() {
+		started = false;
+		for(EventLoop loop: loops) {
+			loop.shutdown();
+		}
+	}
+
+	public boolean isAlive() {
+		return started;
+	}
+
+	public int loopCount() {
+		return loops.length;
+	}
+
+	public Strategy strategy() {
+		return strategy;
+	}
+
+	protected EventLoop next() {
+		if(loops.length == 1) {
+			return loops[0];
+		}
+		if(strategy == Strategy.LEAST_CONNECTIONS) {
+			EventLoop least = loops[0];
+			for(int i = 1; i < loops.length; i++) {
+				if(loops[i].channelCount() < least.channelCount()) {
+					least = loops[i];
+				}
+			}
+			return least;
+		}
+		return loops[(index.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+	}
+
+	public static enum Strategy {
+		ROUND_ROBIN,
+		LEAST_CONNECTIONS
+	}
+}
@@ -0,0 +1,212 @@
+package com.archer.jdknet;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorGroup {
+
+	private static final int KEEP_ALIVE_TIME = 10_000;
+
+	private String name;
+
+	private int coreThreads, maxThreads;
+
+	private int laneCount = 0;
+
+	private int queueCapacity = 0;
+
+	private volatile ThreadPoolExecutor pool;
+
+	private volatile StripedExecutor lanes;
+
+	private volatile boolean running = false;
+
+	public ExecutorGroup(String name, int threads) {
+		this(name, threads, threads);
+	}
+
+	public ExecutorGroup(String name, int coreThreads, int maxThreads) {
+		this(name);
+		if(coreThreads < 0 || maxThreads <= 0 || maxThreads < coreThreads) {
+			throw new IllegalArgumentException("invalid thread count, core = " + coreThreads + ", max = " + maxThreads);
+		}
+		this.coreThreads = coreThreads;
+		this.maxThreads = maxThreads;
+	}
+
+	private ExecutorGroup(String name) {
+		if(name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("executor group name can not be empty.");
+		}
+		this.name = name;
+	}
+
+	public static ExecutorGroup ordered(String name, int laneCount) {
+		if(laneCount <= 0) {
+			throw new IllegalArgumentException("lane count must be positive, provide = " + laneCount);
+		}
+		ExecutorGroup group = new ExecutorGroup(name);
+		group.laneCount = laneCount;
+		return group;
+	}
+
+	public synchronized ExecutorGroup queueCapacity(int capacity) {
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("work queue capacity must be positive, provide = " + capacity);
+		}
+		if(pool != null || lanes != null) {
+			throw new ChannelException("executor group " + name + " is already started.");
+		}
+		this.queueCapacity = capacity;
+		return this;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public boolean isOrdered() {
+		return laneCount > 0;
+	}
+
+	public boolean isBounded() {
+		return queueCapacity > 0;
+	}
+
+	public synchronized ExecutorGroup start() {
+		if(running) {
+			return this;
+		}
+		if(laneCount > 0) {
+			lanes = new StripedExecutor(name, laneCount, queueCapacity, this);
+		} else {
+			pool = new ThreadPoolExecutor(
+					coreThreads,
+					maxThreads,
+					KEEP_ALIVE_TIME,
+					TimeUnit.MILLISECONDS,
+					queueCapacity > 0 ? new WorkQueue(queueCapacity) : new LinkedBlockingQueue<Runnable>(),
+					new GroupThreadFactory(this, name));
+		}
+		running = true;
+		return this;
+	}
+
+	public void execute(Channel ch, Runnable task) {
+		if(pool == null && lanes == null) {
+			start();
+		}
+		Runnable batched = () -> {
+			try {
+				task.run();
+			} finally {
+				((GroupThread) Thread.currentThread()).flushDeferred();
+			}
+		};
+		StripedExecutor lanes = this.lanes;
+		if(lanes != null) {
+			lanes.execute(ch, batched);
+		} else {
+			pool.execute(batched);
+		}
+	}
+
+	public boolean inGroup() {
+		Thread t = Thread.currentThread();
+		return t instanceof GroupThread && ((GroupThread) t).group == this;
+	}
+
+	public int queueDepth() {
+		StripedExecutor lanes = this.lanes;
+		if(lanes != null) {
+			return lanes.queueDepth();
+		}
+		ThreadPoolExecutor pool = this.pool;
+		return pool == null ? 0 : pool.getQueue().size();
+	}
+
+	protected int queueDepth(Channel ch) {
+		StripedExecutor lanes = this.lanes;
+		if(lanes != null) {
+			return lanes.queueDepth(ch);
+		}
+		return queueDepth();
+	}
+
+	public int queueCapacity() {
+		return queueCapacity;
+	}
+
+	public boolean isAlive() {
+		return running;
+	}
+
+	public synchronized void shutdown() {
+		running = false;
+		if(lanes != null) {
+			lanes.shutdown();
+		}
+		if(pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	public boolean isTerminated() {
+		StripedExecutor lanes = this.lanes;
+		if(lanes != null) {
+			return lanes.isTerminated();
+		}
+		ThreadPoolExecutor pool = this.pool;
+		return pool == null || pool.isTerminated();
+	}
+
+	static class GroupThread extends Thread {
+
+		final ExecutorGroup group;
+
+		private ArrayList<Channel> deferred = new ArrayList<>();
+
+		GroupThread(ExecutorGroup group, Runnable r, String name) {
+			super(r, name);
+			this.group = group;
+		}
+
+		void deferFlush(Channel ch) {
+			if(!deferred.contains(ch)) {
+				deferred.add(ch);
+			}
+		}
+
+		void flushDeferred() {
+			for(int i = 0; i < deferred.size(); i++) {
+				try {
+					deferred.get(i).flush();
+				} catch(Exception e) {
+					System.err.println("flush channel failed, " + e.getMessage());
+				}
+			}
+			deferred.clear();
+		}
+	}
+
+	private static class GroupThreadFactory implements ThreadFactory {
+
+		private ExecutorGroup group;
+		private String prefix;
+		private AtomicInteger threadCount = new AtomicInteger(0);
+
+		public GroupThreadFactory(ExecutorGroup group, String prefix) {
+			this.group = group;
+			this.prefix = prefix + "-";
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new GroupThread(group, r, prefix + threadCount.incrementAndGet());
+		}
+	}
+}
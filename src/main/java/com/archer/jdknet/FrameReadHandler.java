@@ -1,11 +1,10 @@
 package com.archer.jdknet;
 
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class FrameReadHandler extends Handler {
 
-	private static ConcurrentHashMap<Channel, FrameMessage> frameCache = new ConcurrentHashMap<>();
+	private static final AttributeKey<FrameMessage> FRAME = AttributeKey.valueOf(FrameReadHandler.class, "frame");
 	
 	private int off, len, headLen;
 	
@@ -24,9 +23,20 @@ public class FrameReadHandler extends Handler {
 	@Override
 	public void onRead(Channel channel, Bytes in) throws Exception {
 		FrameMessage frame = getFrameMessage(channel);
-		Bytes read = frame.read(in, off, len, headLen);
-		if(read != null) {
-			toNextOnRead(channel, read);
+		frame.frameLock.lock();
+		try {
+			frame.cumulation.addComponent(in);
+			Bytes read;
+			while((read = frame.read(off, len, headLen)) != null) {
+				try {
+					toNextOnRead(channel, read);
+				} finally {
+					read.release();
+				}
+			}
+			frame.cumulation.discardReadComponents();
+		} finally {
+			frame.frameLock.unlock();
 		}
 	}
 
@@ -37,7 +47,10 @@ public class FrameReadHandler extends Handler {
 
 	@Override
 	public void onDisconnect(Channel channel) throws Exception {
-		frameCache.remove(channel);
+		FrameMessage frame = channel.removeAttr(FRAME);
+		if(frame != null) {
+			frame.release();
+		}
 		toNextOnDisconnect(channel);
 	}
 
@@ -52,10 +65,9 @@ public class FrameReadHandler extends Handler {
 	}
 	
 	private FrameMessage getFrameMessage(Channel channel) {
-		FrameMessage msg = frameCache.getOrDefault(channel, null);
+		FrameMessage msg = channel.attr(FRAME);
 		if(msg == null) {
-			msg = new FrameMessage();
-			frameCache.put(channel, msg);
+			msg = channel.attrIfAbsent(FRAME, new FrameMessage());
 		}
 		return msg;
 	}
@@ -64,34 +76,30 @@ public class FrameReadHandler extends Handler {
 		
         ReentrantLock frameLock = new ReentrantLock(true);
         
-		byte[] data;
-		int pos;
+		CompositeBytes cumulation = new CompositeBytes();
+		int frameLen = -1;
 		
 		public FrameMessage() {}
 		
-		public Bytes read(Bytes in, int off, int len, int headLen) {
-			try {
-				frameLock.lock();
-                
-				int readCount;
-				if(data == null) {
-					int dataLen = getFrameLength(in, off, len) + headLen;
-					data = new byte[dataLen];
-					pos = 0;
-					readCount = dataLen > in.available() ? in.available() : dataLen;
-				} else {
-					int remain = data.length - pos;
-					readCount = remain > in.available() ? in.available() : remain;
-				}
-				in.read(data, pos, readCount);
-				pos += readCount;
-				if(readCount >= data.length) {
-					Bytes read =  new Bytes(data);
-					data = null;
-					pos = 0;
-					return read;
+		public Bytes read(int off, int len, int headLen) {
+			if(frameLen < 0) {
+				if(cumulation.available() < off + len) {
+					return null;
 				}
+				frameLen = getFrameLength(cumulation, off, len) + headLen;
+			}
+			if(cumulation.available() < frameLen) {
 				return null;
+			}
+			Bytes read = cumulation.readSlice(frameLen);
+			frameLen = -1;
+			return read;
+		}
+		
+		public void release() {
+			frameLock.lock();
+			try {
+				cumulation.release();
 			} finally {
 				frameLock.unlock();
 			}
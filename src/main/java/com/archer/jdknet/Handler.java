@@ -2,38 +2,40 @@ package com.archer.jdknet;
 
 public abstract class Handler {
 	
-	protected Handler last;
-	protected Handler next;
+	private ExecutorGroup executorGroup;
 
-	protected Handler last(Handler last) {
-		this.last = last;
+	public Handler executorGroup(ExecutorGroup executorGroup) {
+		this.executorGroup = executorGroup;
 		return this;
 	}
 	
-	protected Handler next(Handler next) {
-		this.next = next;
-		return this;
+	public ExecutorGroup executorGroup() {
+		return executorGroup;
 	}
 	
 	protected void toNextOnConnect(Channel channel) throws Exception {
+		Handler next = channel.pipeline().next(this);
 		if(next != null) {
-			next.onConnect(channel);
+			invokeConnect(next, channel);
 		}
 	}
 
 	protected void toNextOnDisconnect(Channel channel) throws Exception {
+		Handler next = channel.pipeline().next(this);
 		if(next != null) {
-			next.onDisconnect(channel);
+			invokeDisconnect(next, channel);
 		}
 	}
 	
 	protected void toNextOnRead(Channel channel, Bytes in) throws Exception {
+		Handler next = channel.pipeline().next(this);
 		if(next != null) {
-			next.onRead(channel, in);
+			invokeRead(next, channel, in);
 		}
 	}
 	
 	protected void toLastOnWrite(Channel channel, Bytes out) throws Exception {
+		Handler last = channel.pipeline().last(this);
 		if(last != null) {
 			last.onWrite(channel, out);
 		} else {
@@ -43,7 +45,22 @@ public abstract class Handler {
 		}
 	}
 
+	protected void toNextOnWritabilityChanged(Channel channel) throws Exception {
+		Handler next = channel.pipeline().next(this);
+		if(next != null) {
+			invokeWritabilityChanged(next, channel);
+		}
+	}
+
+	protected void toNextOnIdle(Channel channel, IdleState state) throws Exception {
+		Handler next = channel.pipeline().next(this);
+		if(next != null) {
+			invokeIdle(next, channel, state);
+		}
+	}
+
 	protected void toNextOnError(Channel channel, Throwable t) {
+		Handler next = channel.pipeline().next(this);
 		if(next != null) {
 			next.onError(channel, t);
 		} else {
@@ -62,5 +79,80 @@ public abstract class Handler {
 	
 	public abstract void onError(Channel channel, Throwable t);
 	
+	public void onWritabilityChanged(Channel channel) throws Exception {
+		toNextOnWritabilityChanged(channel);
+	}
+	
+	public void onIdle(Channel channel, IdleState state) throws Exception {
+		toNextOnIdle(channel, state);
+	}
+	
 	public abstract boolean isFinalHandler();
+	
+	protected static void invokeConnect(Handler handler, Channel channel) throws Exception {
+		if(!offload(handler, channel, () -> handler.onConnect(channel))) {
+			handler.onConnect(channel);
+		}
+	}
+	
+	protected static void invokeDisconnect(Handler handler, Channel channel) throws Exception {
+		if(!offload(handler, channel, () -> handler.onDisconnect(channel))) {
+			handler.onDisconnect(channel);
+		}
+	}
+	
+	protected static void invokeRead(Handler handler, Channel channel, Bytes in) throws Exception {
+		ExecutorGroup group = handler.executorGroup;
+		if(group == null || group.inGroup()) {
+			handler.onRead(channel, in);
+			return ;
+		}
+		in.retain();
+		try {
+			group.execute(channel, () -> {
+				try {
+					handler.onRead(channel, in);
+				} catch(Exception e) {
+					channel.worker().onError(channel.key(), e);
+				} finally {
+					in.release();
+				}
+			});
+		} catch(RuntimeException e) {
+			in.release();
+			throw e;
+		}
+	}
+	
+	protected static void invokeWritabilityChanged(Handler handler, Channel channel) throws Exception {
+		if(!offload(handler, channel, () -> handler.onWritabilityChanged(channel))) {
+			handler.onWritabilityChanged(channel);
+		}
+	}
+	
+	protected static void invokeIdle(Handler handler, Channel channel, IdleState state) throws Exception {
+		if(!offload(handler, channel, () -> handler.onIdle(channel, state))) {
+			handler.onIdle(channel, state);
+		}
+	}
+	
+	private static boolean offload(Handler handler, Channel channel, StageTask task) {
+		ExecutorGroup group = handler.executorGroup;
+		if(group == null || group.inGroup()) {
+			return false;
+		}
+		group.execute(channel, () -> {
+			try {
+				task.run();
+			} catch(Exception e) {
+				channel.worker().onError(channel.key(), e);
+			}
+		});
+		return true;
+	}
+	
+	private static interface StageTask {
+		
+		void run() throws Exception;
+	}
 }
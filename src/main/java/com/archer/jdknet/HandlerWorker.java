@@ -5,23 +5,38 @@ import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 final class HandlerWorker {
 	
-    private static final int KEEP_ALIVE_TIME = 10_000;
-    private static ThreadPoolExecutor workerPool;
-    private static AtomicInteger workerCount;
+    private static final String WORKER_PREFIX = "jdknet-worker-";
+    private static final String LANE_PREFIX = "jdknet-lane-";
+    private static final long RESUME_CHECK_MILLIS = 100;
+    private static final AtomicInteger groupCount = new AtomicInteger(0);
 	
-    private Handler head;
-    private Handler tail;
+    private Pipeline pipeline = new Pipeline();
+    private ChannelInitializer initializer;
     
     private int coreThreads, maxThreads;
-    private boolean enableThreads;
+    private int laneCount;
+    
+    private ExecutorGroup executorGroup;
+    private boolean ownExecutorGroup = false;
+    
+    private int queueCapacity = 0;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.PAUSE_READ;
+    private ConcurrentLinkedQueue<Channel> paused = new ConcurrentLinkedQueue<>();
+    
+    private int lowWaterMark = Channel.DEFAULT_LOW_WATER_MARK;
+    private int highWaterMark = Channel.DEFAULT_HIGH_WATER_MARK;
+    private int maxReadsPerEvent = Channel.DEFAULT_MAX_READS_PER_EVENT;
+    private int maxAcceptsPerEvent = ServerChannel.DEFAULT_MAX_ACCEPTS_PER_EVENT;
+    private boolean zeroCopyRead = false;
     
     public HandlerWorker() {
     	this(0, 0, false);
@@ -32,47 +47,175 @@ final class HandlerWorker {
     }
     
     public HandlerWorker(int coreThreads, int maxThreads, boolean enableThreads) {
-    	this.enableThreads = enableThreads;
     	if(enableThreads) {
         	this.coreThreads = coreThreads;
         	this.maxThreads = maxThreads;
-        	if(workerPool == null) {
-        		workerPool = new ThreadPoolExecutor(
-                		coreThreads,
-                		maxThreads,
-                		KEEP_ALIVE_TIME,
-                        TimeUnit.MILLISECONDS,
-                        new LinkedBlockingQueue<Runnable>(),
-                        Executors.defaultThreadFactory());
-        	}
-        	workerCount = new AtomicInteger(1);
+        	newExecutorGroup();
+    	}
+    }
+    
+    protected void orderedThreads(int laneCount) {
+    	if(laneCount <= 0) {
+    		throw new IllegalArgumentException("lane count must be positive, provide = " + laneCount);
+    	}
+    	this.laneCount = laneCount;
+    	newExecutorGroup();
+    }
+    
+    protected void executorGroup(ExecutorGroup group) {
+    	if(ownExecutorGroup) {
+    		executorGroup.shutdown();
+    	}
+    	this.executorGroup = group;
+    	this.ownExecutorGroup = false;
+    }
+    
+    protected ExecutorGroup executorGroup() {
+    	return executorGroup;
+    }
+    
+    private void newExecutorGroup() {
+    	if(ownExecutorGroup) {
+    		executorGroup.shutdown();
+    	}
+    	ExecutorGroup group;
+    	if(laneCount > 0) {
+    		group = ExecutorGroup.ordered(LANE_PREFIX + groupCount.incrementAndGet(), laneCount);
     	} else {
-        	this.coreThreads = 0;
-        	this.maxThreads = 0;
+    		group = new ExecutorGroup(WORKER_PREFIX + groupCount.incrementAndGet(), coreThreads, maxThreads);
     	}
+    	if(queueCapacity > 0) {
+    		group.queueCapacity(queueCapacity);
+    	}
+    	this.executorGroup = group;
+    	this.ownExecutorGroup = true;
     }
     
-    protected void onAccept(SelectionKey serverKey) {
-    	SelectionKey clientKey = null;
-    	try {
-    		ServerSocketChannel serverChannel = (ServerSocketChannel) serverKey.channel();
-        	SocketChannel clientChannel = serverChannel.accept();
-        	clientChannel.configureBlocking(false);
-        	clientKey = clientChannel.register(serverKey.selector(), SelectionKey.OP_READ);
-        	Channel ch = getChannel(clientKey);
-        	if(head != null) {
-    			head.onConnect(ch);
+    protected boolean isOrdered() {
+    	return executorGroup != null && executorGroup.isOrdered();
+    }
+    
+    protected void workQueue(int capacity, OverflowPolicy policy) {
+    	if(capacity <= 0) {
+    		throw new IllegalArgumentException("work queue capacity must be positive, provide = " + capacity);
+    	}
+    	if(policy == null) {
+    		throw new NullPointerException();
+    	}
+    	if(executorGroup != null && !ownExecutorGroup) {
+    		throw new ChannelException("work queue of shared executor group " + executorGroup.name() + 
+    				" must be configured on the group.");
+    	}
+    	this.queueCapacity = capacity;
+    	this.overflowPolicy = policy;
+    	if(executorGroup != null) {
+    		newExecutorGroup();
+    	}
+    }
+    
+    protected void overflowPolicy(OverflowPolicy policy) {
+    	if(policy == null) {
+    		throw new NullPointerException();
+    	}
+    	this.overflowPolicy = policy;
+    }
+    
+    protected int queueDepth() {
+    	return executorGroup == null ? 0 : executorGroup.queueDepth();
+    }
+    
+    protected void writeBufferWaterMark(int low, int high) {
+		if(low < 0 || high < low) {
+			throw new IllegalArgumentException("invalid water mark, low = " + low + ", high = " + high);
+		}
+    	this.lowWaterMark = low;
+    	this.highWaterMark = high;
+    }
+    
+    protected void maxReadsPerEvent(int maxReads) {
+    	if(maxReads <= 0) {
+    		throw new IllegalArgumentException("max reads per event must be positive, provide = " + maxReads);
+    	}
+    	this.maxReadsPerEvent = maxReads;
+    }
+    
+    protected void maxAcceptsPerEvent(int maxAccepts) {
+    	if(maxAccepts <= 0) {
+    		throw new IllegalArgumentException("max accepts per event must be positive, provide = " + maxAccepts);
+    	}
+    	this.maxAcceptsPerEvent = maxAccepts;
+    }
+    
+    protected void zeroCopyRead(boolean zeroCopy) {
+    	this.zeroCopyRead = zeroCopy;
+    }
+    
+    protected boolean zeroCopyRead() {
+    	return zeroCopyRead;
+    }
+    
+    protected int maxReadsPerEvent() {
+    	return maxReadsPerEvent;
+    }
+    
+    protected int lowWaterMark() {
+    	return lowWaterMark;
+    }
+    
+    protected int highWaterMark() {
+    	return highWaterMark;
+    }
+    
+    protected void onAccept(SelectionKey serverKey, EventLoopGroup group, SocketOptions childOptions) {
+    	ServerSocketChannel serverChannel = (ServerSocketChannel) serverKey.channel();
+    	List<AcceptBatch> batches = new ArrayList<>(group.loopCount());
+    	for(int i = 0; i < maxAcceptsPerEvent; i++) {
+    		SocketChannel clientChannel;
+    		try {
+    			clientChannel = serverChannel.accept();
+    		} catch(IOException ex) {
+        		System.err.println("accept connection failed. " + ex.getLocalizedMessage());
+        		break;
+    		}
+        	if(clientChannel == null) {
+        		break;
         	}
-    	} catch(Exception ex) {
-        	onError(clientKey, ex);
+        	try {
+            	clientChannel.configureBlocking(false);
+            	childOptions.setOn(clientChannel);
+            	InetSocketAddress remote = (InetSocketAddress) clientChannel.getRemoteAddress();
+            	Channel ch = new Channel(remote.getAddress().getHostAddress(), remote.getPort(), this);
+            	initChannel(ch);
+            	batchOf(batches, group.next()).add(ch, clientChannel);
+        	} catch(Exception ex) {
+    			try {
+    				clientChannel.close();
+    			} catch(IOException ignore) {}
+        		System.err.println("accept connection failed. " + ex.getLocalizedMessage());
+        	}
+    	}
+    	for(AcceptBatch batch: batches) {
+    		batch.loop.register(batch.channels, batch.sockets);
     	}
     }
     
+    private AcceptBatch batchOf(List<AcceptBatch> batches, EventLoop loop) {
+    	for(AcceptBatch batch: batches) {
+    		if(batch.loop == loop) {
+    			return batch;
+    		}
+    	}
+    	AcceptBatch batch = new AcceptBatch(loop);
+    	batches.add(batch);
+    	return batch;
+    }
+    
     protected void onConnect(SelectionKey clientKey) {
     	try {
         	Channel ch = getChannel(clientKey);
+        	Handler head = head(ch);
         	if(head != null) {
-    			head.onConnect(ch);
+    			Handler.invokeConnect(head, ch);
         	}
     	} catch(Exception e) {
         	onError(clientKey, e);
@@ -82,7 +225,7 @@ final class HandlerWorker {
     protected void onRead(SelectionKey clientKey) {
         try {
         	Channel ch = getChannel(clientKey);
-        	if(!ch.isOpen()) {
+        	if(!ch.isOpen() || ch.isReadPaused()) {
         		return ;
         	}
         	Bytes readBytes;
@@ -94,13 +237,7 @@ final class HandlerWorker {
         		return ;
             }
         	if(readBytes != null && readBytes.available() > 0) {
-        		if(this.enableThreads) {
-                	workerPool.submit(() -> {
-                		handle(clientKey, ch, readBytes);
-                	});
-        		} else {
-            		handle(clientKey, ch, readBytes);
-        		}
+        		dispatch(clientKey, ch, readBytes);
         	}
         	if(!ch.isOpen()) {
         		ch.prepareClose();
@@ -111,10 +248,117 @@ final class HandlerWorker {
         }
     }
     
+    private void dispatch(SelectionKey clientKey, Channel ch, Bytes readBytes) {
+    	Runnable task = () -> {
+    		handle(clientKey, ch, readBytes);
+    	};
+    	ExecutorGroup group = executorGroup;
+    	if(group == null) {
+    		task.run();
+    		return ;
+    	}
+    	try {
+    		group.execute(ch, task);
+    	} catch(RejectedExecutionException e) {
+    		if(!group.isBounded() || !group.isAlive()) {
+    			readBytes.release();
+    			throw e;
+    		}
+    		overflow(clientKey, ch, readBytes);
+    	}
+    }
+    
+    private void overflow(SelectionKey clientKey, Channel ch, Bytes readBytes) {
+    	switch(overflowPolicy) {
+    	case PAUSE_READ:
+    		ch.pauseRead(readBytes);
+    		paused.offer(ch);
+    		ch.schedule(() -> {
+    			checkPaused(ch);
+    		}, RESUME_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    		break;
+    	case DROP:
+    		readBytes.release();
+    		break;
+    	default:
+    		readBytes.release();
+    		onError(clientKey, new ChannelException("work queue is full, capacity = " + queueCapacity));
+    		ch.prepareClose();
+    	}
+    }
+    
+    private void resumePaused() {
+    	for(Channel ch: paused) {
+    		if(drained(ch) && paused.remove(ch)) {
+    			ch.loop().execute(() -> {
+    				resumeRead(ch);
+    			});
+    		}
+    	}
+    }
+    
+    private void checkPaused(Channel ch) {
+    	if(!paused.contains(ch)) {
+    		return ;
+    	}
+    	if(!ch.isOpen() || drained(ch)) {
+    		if(paused.remove(ch)) {
+    			resumeRead(ch);
+    		}
+    		return ;
+    	}
+    	ch.schedule(() -> {
+    		checkPaused(ch);
+    	}, RESUME_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    private boolean drained(Channel ch) {
+    	ExecutorGroup group = executorGroup;
+    	return group == null || group.queueDepth(ch) <= group.queueCapacity() >> 1;
+    }
+    
+    private void resumeRead(Channel ch) {
+    	Bytes stalled = ch.resumeRead();
+    	if(stalled == null) {
+    		return ;
+    	}
+    	if(!ch.isOpen()) {
+    		stalled.release();
+    		return ;
+    	}
+    	try {
+    		dispatch(ch.key(), ch, stalled);
+    	} catch(Exception e) {
+    		onError(ch.key(), e);
+    	}
+    }
+    
+    protected void onWritabilityChanged(Channel ch) {
+    	try {
+    		Handler head = head(ch);
+    		if(head != null) {
+    			Handler.invokeWritabilityChanged(head, ch);
+    		}
+    	} catch(Exception e) {
+    		onError(ch.key(), e);
+    	}
+    }
+    
+    protected void execute(Channel ch, Runnable task) {
+    	if(isOrdered()) {
+    		try {
+    			executorGroup.execute(ch, task);
+    			return ;
+    		} catch(RejectedExecutionException ignore) {}
+    	}
+    	task.run();
+    }
+    
     public void onError(SelectionKey clientKey, Exception t) {
     	try {
+			Channel ch = getChannel(clientKey);
+			Handler head = head(ch);
 			if(head != null) {
-				Channel ch = getChannel(clientKey);
 				head.onError(ch, t);
 			}
 		} catch (Exception e) {
@@ -125,120 +369,146 @@ final class HandlerWorker {
     
 
     public void onClose(SelectionKey clientKey) {
+    	Channel ch = getChannel(clientKey);
+    	if(isOrdered() && ch != null) {
+    		try {
+        		executorGroup.execute(ch, () -> {
+        			closeChannel(clientKey);
+        		});
+    		} catch(RejectedExecutionException ignore) {
+    			closeChannel(clientKey);
+    		}
+    	} else {
+    		closeChannel(clientKey);
+    	}
+    }
+    
+    private void closeChannel(SelectionKey clientKey) {
         try {
+			Channel ch = getChannel(clientKey);
+			if(ch == null) {
+				return ;
+			}
+			Handler head = head(ch);
 			if(head != null) {
-				Channel ch = getChannel(clientKey);
-				head.onDisconnect(ch);
-				ch.close();
+				Handler.invokeDisconnect(head, ch);
 			}
+			ch.close();
         } catch (Exception ex) {
         	onError(clientKey, ex);
         }
     }
     
     public void add(Handler ...handlers) {
-    	if(handlers.length == 0) {
-    		return ;
-    	}
-    	int i = 0;
-    	if(head == null) {
-    		head = tail = handlers[0];
-    		i++;
+    	checkNoInitializer();
+    	pipeline.add(handlers);
+    }
+    
+    public void push(Handler handler) {
+    	checkNoInitializer();
+    	pipeline.push(handler);
+    }
+    
+    public void shift(Handler handler) {
+    	checkNoInitializer();
+    	pipeline.shift(handler);
+    }
+    
+    protected void initializer(ChannelInitializer initializer) {
+    	if(initializer != null && !pipeline.isEmpty()) {
+    		throw new HandlerException("handlers are already added, a channel initializer can not be used together with them.");
     	}
-    	for(; i < handlers.length; i++) {
-    		if(tail.isFinalHandler() && i < handlers.length - 1) {
-    			throw new HandlerException(
-    					"final-handler must be at last of the handler list.");
-    		}
-    		tail.next = handlers[i];
-    		handlers[i].last = tail;
-    		tail = handlers[i];
+    	this.initializer = initializer;
+    }
+    
+    private void checkNoInitializer() {
+    	if(initializer != null) {
+    		throw new HandlerException("a channel initializer is set, add handlers in ChannelInitializer.initChannel instead.");
     	}
     }
     
-    public void push(Handler handler) {
-    	if(head == null) {
-    		head = tail = handler;
-    	} else {
-    		handler.last = tail;
-    		tail.next = handler;
-    		tail = handler;
+    protected Pipeline pipeline() {
+    	return pipeline;
+    }
+    
+    protected void initChannel(Channel ch) throws Exception {
+    	if(initializer == null) {
+    		return ;
     	}
+    	ch.pipeline(new Pipeline());
+    	initializer.initChannel(ch);
     }
     
-    public void shift(Handler handler) {
-    	if(head == null) {
-    		head = tail = handler;
-    	} else {
-        	handler.next = head.next.last;
-        	head.next.last = handler;
-        	head.next = handler;
+    private Handler head(Channel ch) {
+    	if(ch == null) {
+    		return pipeline.head();
     	}
+    	return ch.pipeline().head();
     }
     
     public void close() {
-    	if(this.enableThreads) {
-        	int workers = workerCount.decrementAndGet();
-        	if(workers <= 0) {
-            	workerPool.shutdown();
-        	}
+    	if(ownExecutorGroup) {
+    		executorGroup.shutdown();
     	}
     }
     
     private void handle(SelectionKey clientKey, Channel ch, Bytes readBytes) {
-		if(head != null) {
-			try {
-				head.onRead(ch, readBytes);
-			} catch (Exception e) {
-	        	onError(clientKey, e);
+		try {
+			Handler head = head(ch);
+			if(head != null) {
+				Handler.invokeRead(head, ch, readBytes);
 			}
+		} catch (Exception e) {
+        	onError(clientKey, e);
+		} finally {
+			readBytes.release();
+		}
+		if(!paused.isEmpty()) {
+			resumePaused();
 		}
     }
     
     protected boolean isAlive() {
-    	if(enableThreads) {
-        	return !workerPool.isTerminated();
-    	}
-    	return true;
+    	return executorGroup == null || executorGroup.isAlive();
     }
     
     protected void reStart() {
-    	if(this.enableThreads) {
-        	if(workerPool.isTerminated()) {
-        		workerPool = new ThreadPoolExecutor(
-                		coreThreads,
-                		maxThreads,
-                		KEEP_ALIVE_TIME,
-                        TimeUnit.MILLISECONDS,
-                        new LinkedBlockingQueue<Runnable>(),
-                        Executors.defaultThreadFactory());
-        		workerCount.incrementAndGet();
-        	}
+    	if(executorGroup != null) {
+    		executorGroup.start();
     	}
     }
     
     protected boolean handlerInitialized() {
-    	return tail != null;
+    	return initializer != null || !pipeline.isEmpty();
     }
     
     protected void handleWrite(Channel channel, Bytes out) throws Exception {
+    	Handler tail = channel.pipeline().tail();
     	if(tail != null) {
     		tail.onWrite(channel, out);
     	}
     }
     
-    protected Channel getChannel(SelectionKey clientKey) throws IOException {
+    protected Channel getChannel(SelectionKey clientKey) {
     	if(clientKey == null) {
     		return null;
     	}
-    	Channel ch = (Channel) clientKey.attachment();
-    	if(ch == null) {
-        	SocketChannel clientChannel = (SocketChannel) clientKey.channel();
-        	InetSocketAddress remote = (InetSocketAddress) clientChannel.getRemoteAddress();
-        	ch = new Channel(remote.getAddress().getHostAddress(), remote.getPort(), 
-        			clientKey, this);
-        	clientKey.attach(ch);
+    	return (Channel) clientKey.attachment();
+    }
+    
+    private static class AcceptBatch {
+    	
+    	EventLoop loop;
+    	List<Channel> channels = new ArrayList<>();
+    	List<SocketChannel> sockets = new ArrayList<>();
+    	
+    	AcceptBatch(EventLoop loop) {
+    		this.loop = loop;
+    	}
+    	
+    	void add(Channel ch, SocketChannel sc) {
+    		channels.add(ch);
+    		sockets.add(sc);
     	}
-    	return ch;
     }
 }
@@ -0,0 +1,184 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class HashedWheelTimer {
+
+	protected static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	protected static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+	private final long tickNanos;
+
+	private final WheelTimeout[] wheel;
+
+	private final int mask;
+
+	private final long startTime;
+
+	private long tick;
+
+	private int active;
+
+	private ConcurrentLinkedQueue<WheelTimeout> pending = new ConcurrentLinkedQueue<>();
+
+	public HashedWheelTimer() {
+		this(DEFAULT_TICK_NANOS, DEFAULT_TICKS_PER_WHEEL);
+	}
+
+	public HashedWheelTimer(long tickNanos, int ticksPerWheel) {
+		if(tickNanos <= 0) {
+			throw new IllegalArgumentException("tick must be positive, provide = " + tickNanos);
+		}
+		if(ticksPerWheel <= 0 || (ticksPerWheel & (ticksPerWheel - 1)) != 0) {
+			throw new IllegalArgumentException("ticks per wheel must be a power of 2, provide = " + ticksPerWheel);
+		}
+		this.tickNanos = tickNanos;
+		this.wheel = new WheelTimeout[ticksPerWheel];
+		this.mask = ticksPerWheel - 1;
+		this.startTime = System.nanoTime();
+		this.tick = 0;
+	}
+
+	protected Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		if(task == null) {
+			throw new NullPointerException();
+		}
+		long deadline = System.nanoTime() + Math.max(unit.toNanos(delay), 0) - startTime;
+		WheelTimeout timeout = new WheelTimeout(task, deadline);
+		pending.offer(timeout);
+		return timeout;
+	}
+
+	protected boolean isEmpty() {
+		return active == 0 && pending.isEmpty();
+	}
+
+	protected long millisToNextTick(long now) {
+		if(isEmpty()) {
+			return -1;
+		}
+		long wait = startTime + tick * tickNanos - now;
+		if(wait <= 0) {
+			return 0;
+		}
+		return Math.max(TimeUnit.NANOSECONDS.toMillis(wait + 999_999), 1);
+	}
+
+	protected void expire(long now) {
+		long target = (now - startTime) / tickNanos;
+		while(tick <= target) {
+			transferPending();
+			if(active == 0) {
+				tick = target + 1;
+				break;
+			}
+			expireBucket((int) (tick & mask));
+			tick++;
+		}
+	}
+
+	private void transferPending() {
+		WheelTimeout timeout;
+		while((timeout = pending.poll()) != null) {
+			if(timeout.isCancelled()) {
+				continue;
+			}
+			long calculated = (timeout.deadline + tickNanos - 1) / tickNanos;
+			if(calculated < tick) {
+				calculated = tick;
+			}
+			timeout.rounds = (calculated - tick) / wheel.length;
+			int idx = (int) (calculated & mask);
+			timeout.bucket = idx;
+			timeout.next = wheel[idx];
+			if(wheel[idx] != null) {
+				wheel[idx].prev = timeout;
+			}
+			wheel[idx] = timeout;
+			active++;
+		}
+	}
+
+	private void expireBucket(int idx) {
+		WheelTimeout timeout = wheel[idx];
+		while(timeout != null) {
+			WheelTimeout next = timeout.next;
+			if(timeout.isCancelled()) {
+				unlink(timeout);
+			} else if(timeout.rounds <= 0) {
+				unlink(timeout);
+				timeout.expire();
+			} else {
+				timeout.rounds--;
+			}
+			timeout = next;
+		}
+	}
+
+	private void unlink(WheelTimeout timeout) {
+		if(timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		} else {
+			wheel[timeout.bucket] = timeout.next;
+		}
+		if(timeout.next != null) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		active--;
+	}
+
+	private static final class WheelTimeout implements Timeout {
+
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+
+		private final Runnable task;
+
+		private final long deadline;
+
+		private AtomicInteger state = new AtomicInteger(ST_INIT);
+
+		private long rounds;
+
+		private int bucket;
+
+		private WheelTimeout prev, next;
+
+		WheelTimeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public boolean cancel() {
+			return state.compareAndSet(ST_INIT, ST_CANCELLED);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.get() == ST_CANCELLED;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state.get() == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if(!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+				return ;
+			}
+			try {
+				task.run();
+			} catch(Throwable t) {
+				System.err.println("timer task failed. " + t.getLocalizedMessage());
+				t.printStackTrace();
+			}
+		}
+	}
+}
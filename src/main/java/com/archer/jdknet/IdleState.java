@@ -0,0 +1,7 @@
+package com.archer.jdknet;
+
+public enum IdleState {
+	READER_IDLE,
+	WRITER_IDLE,
+	ALL_IDLE
+}
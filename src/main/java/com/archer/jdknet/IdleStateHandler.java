@@ -0,0 +1,145 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.TimeUnit;
+
+public class IdleStateHandler extends Handler {
+
+	private static final AttributeKey<IdleTask> IDLE = AttributeKey.valueOf(IdleStateHandler.class, "idle");
+	
+	private long readerIdleNanos, writerIdleNanos, allIdleNanos;
+	
+	public IdleStateHandler(int readerIdleSeconds, int writerIdleSeconds, int allIdleSeconds) {
+		this(readerIdleSeconds, writerIdleSeconds, allIdleSeconds, TimeUnit.SECONDS);
+	}
+	
+	public IdleStateHandler(long readerIdle, long writerIdle, long allIdle, TimeUnit unit) {
+		if(readerIdle < 0 || writerIdle < 0 || allIdle < 0) {
+			throw new IllegalArgumentException("idle time can not be negative.");
+		}
+		this.readerIdleNanos = unit.toNanos(readerIdle);
+		this.writerIdleNanos = unit.toNanos(writerIdle);
+		this.allIdleNanos = unit.toNanos(allIdle);
+	}
+
+	@Override
+	public void onConnect(Channel channel) throws Exception {
+		start(channel);
+		toNextOnConnect(channel);
+	}
+
+	@Override
+	public void onRead(Channel channel, Bytes in) throws Exception {
+		toNextOnRead(channel, in);
+	}
+
+	@Override
+	public void onWrite(Channel channel, Bytes out) throws Exception {
+		toLastOnWrite(channel, out);
+	}
+
+	@Override
+	public void onDisconnect(Channel channel) throws Exception {
+		IdleTask task = channel.removeAttr(IDLE);
+		if(task != null) {
+			task.stop();
+		}
+		toNextOnDisconnect(channel);
+	}
+
+	@Override
+	public void onError(Channel channel, Throwable t) {
+		toNextOnError(channel, t);
+	}
+
+	@Override
+	public boolean isFinalHandler() {
+		return false;
+	}
+	
+	private void start(Channel channel) {
+		if(readerIdleNanos <= 0 && writerIdleNanos <= 0 && allIdleNanos <= 0) {
+			return ;
+		}
+		EventLoop loop = channel.loop();
+		if(loop == null) {
+			return ;
+		}
+		IdleTask task = new IdleTask(channel, loop);
+		if(channel.attrIfAbsent(IDLE, task) != task) {
+			return ;
+		}
+		task.run();
+	}
+	
+	private void fire(Channel channel, IdleState state) {
+		HandlerWorker worker = channel.worker();
+		worker.execute(channel, () -> {
+			try {
+				toNextOnIdle(channel, state);
+			} catch(Exception e) {
+				worker.onError(channel.key(), e);
+			}
+		});
+	}
+	
+	private class IdleTask implements Runnable {
+		
+		Channel channel;
+		EventLoop loop;
+		volatile Timeout timeout;
+		volatile boolean stopped = false;
+		long readerMark, writerMark, allMark;
+		
+		IdleTask(Channel channel, EventLoop loop) {
+			this.channel = channel;
+			this.loop = loop;
+			readerMark = writerMark = allMark = System.nanoTime();
+		}
+		
+		@Override
+		public void run() {
+			if(stopped || !channel.isOpen()) {
+				return ;
+			}
+			long now = System.nanoTime();
+			long lastRead = channel.lastReadTime(), lastWrite = channel.lastWriteTime();
+			long next = Long.MAX_VALUE;
+			if(readerIdleNanos > 0) {
+				long idle = now - Math.max(lastRead, readerMark);
+				if(idle >= readerIdleNanos) {
+					readerMark = now;
+					fire(channel, IdleState.READER_IDLE);
+					idle = 0;
+				}
+				next = Math.min(next, readerIdleNanos - idle);
+			}
+			if(writerIdleNanos > 0) {
+				long idle = now - Math.max(lastWrite, writerMark);
+				if(idle >= writerIdleNanos) {
+					writerMark = now;
+					fire(channel, IdleState.WRITER_IDLE);
+					idle = 0;
+				}
+				next = Math.min(next, writerIdleNanos - idle);
+			}
+			if(allIdleNanos > 0) {
+				long idle = now - Math.max(Math.max(lastRead, lastWrite), allMark);
+				if(idle >= allIdleNanos) {
+					allMark = now;
+					fire(channel, IdleState.ALL_IDLE);
+					idle = 0;
+				}
+				next = Math.min(next, allIdleNanos - idle);
+			}
+			timeout = loop.schedule(this, next, TimeUnit.NANOSECONDS);
+		}
+		
+		void stop() {
+			stopped = true;
+			Timeout t = timeout;
+			if(t != null) {
+				t.cancel();
+			}
+		}
+	}
+}
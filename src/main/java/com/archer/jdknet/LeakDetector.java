@@ -0,0 +1,65 @@
+package com.archer.jdknet;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class LeakDetector {
+
+	private static final String LEAK_DETECTION = "jdknet.leakDetection";
+
+	private static volatile boolean enabled = Boolean.getBoolean(LEAK_DETECTION);
+
+	private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	private static final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+	private LeakDetector() {}
+
+	protected static void enable(boolean enable) {
+		enabled = enable;
+	}
+
+	protected static boolean isEnabled() {
+		return enabled;
+	}
+
+	protected static Tracker track(Object obj) {
+		if(!enabled) {
+			return null;
+		}
+		reportLeaks();
+		Tracker tracker = new Tracker(obj, queue);
+		trackers.add(tracker);
+		return tracker;
+	}
+
+	private static void reportLeaks() {
+		Tracker tracker;
+		while((tracker = (Tracker) queue.poll()) != null) {
+			if(trackers.remove(tracker)) {
+				System.err.println("LEAK: " + tracker.name +
+						".release() was not called before it was garbage collected.");
+				tracker.origin.printStackTrace();
+			}
+		}
+	}
+
+	protected static class Tracker extends WeakReference<Object> {
+
+		private String name;
+		private Throwable origin;
+
+		Tracker(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.name = referent.getClass().getSimpleName();
+			this.origin = new Throwable("allocated at");
+		}
+
+		void close() {
+			trackers.remove(this);
+			clear();
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package com.archer.jdknet;
+
+public enum OverflowPolicy {
+	PAUSE_READ,
+	DROP,
+	FAIL
+}
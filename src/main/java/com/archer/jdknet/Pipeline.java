@@ -0,0 +1,219 @@
+package com.archer.jdknet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public class Pipeline {
+	
+	private static final Handler[] EMPTY = new Handler[0];
+	
+	private volatile Handler[] handlers = EMPTY;
+	
+	private volatile Map<Handler, Removed> removed;
+	
+	public Pipeline() {}
+	
+	protected Pipeline(Pipeline source) {
+		this.handlers = source.handlers;
+	}
+	
+	public synchronized Pipeline add(Handler ...handlers) {
+		for(Handler handler: handlers) {
+			insert(this.handlers.length, handler);
+		}
+		return this;
+	}
+	
+	public synchronized Pipeline push(Handler handler) {
+		insert(handlers.length, handler);
+		return this;
+	}
+	
+	public synchronized Pipeline shift(Handler handler) {
+		insert(0, handler);
+		return this;
+	}
+	
+	public synchronized Pipeline addBefore(Handler base, Handler handler) {
+		insert(indexOf(base), handler);
+		return this;
+	}
+	
+	public synchronized Pipeline addAfter(Handler base, Handler handler) {
+		int idx = indexOf(base);
+		if(base.isFinalHandler()) {
+			throw new HandlerException("can not add handler after final-handler " + 
+					base.getClass().getSimpleName());
+		}
+		insert(idx + 1, handler);
+		return this;
+	}
+	
+	public synchronized Pipeline remove(Handler handler) {
+		int idx = indexOf(handler);
+		Handler[] old = handlers;
+		markRemoved(handler, old, idx);
+		Handler[] copy = new Handler[old.length - 1];
+		System.arraycopy(old, 0, copy, 0, idx);
+		System.arraycopy(old, idx + 1, copy, idx, old.length - idx - 1);
+		handlers = copy;
+		return this;
+	}
+	
+	public synchronized Pipeline replace(Handler oldHandler, Handler newHandler) {
+		int idx = indexOf(oldHandler);
+		checkNotAdded(newHandler);
+		if(newHandler.isFinalHandler() && idx < handlers.length - 1) {
+			throw new HandlerException("final-handler must be at last of the handler list.");
+		}
+		Handler[] copy = handlers.clone();
+		markRemoved(oldHandler, copy, idx);
+		copy[idx] = newHandler;
+		forget(newHandler);
+		handlers = copy;
+		return this;
+	}
+	
+	public <T extends Handler> T get(Class<T> type) {
+		for(Handler h: handlers) {
+			if(type.isInstance(h)) {
+				return type.cast(h);
+			}
+		}
+		return null;
+	}
+	
+	public boolean contains(Handler handler) {
+		return find(handlers, handler) >= 0;
+	}
+	
+	public List<Handler> handlers() {
+		return Collections.unmodifiableList(Arrays.asList(handlers));
+	}
+	
+	public boolean isEmpty() {
+		return handlers.length == 0;
+	}
+	
+	protected Handler head() {
+		Handler[] hs = handlers;
+		return hs.length > 0 ? hs[0] : null;
+	}
+	
+	protected Handler tail() {
+		Handler[] hs = handlers;
+		return hs.length > 0 ? hs[hs.length - 1] : null;
+	}
+	
+	protected Handler next(Handler handler) {
+		Handler[] hs = handlers;
+		int idx = find(hs, handler);
+		if(idx >= 0) {
+			return idx + 1 < hs.length ? hs[idx + 1] : null;
+		}
+		Removed r = removedOf(handler);
+		while(r != null) {
+			Handler next = r.next;
+			if(next == null || find(hs, next) >= 0) {
+				return next;
+			}
+			r = removedOf(next);
+		}
+		return null;
+	}
+	
+	protected Handler last(Handler handler) {
+		Handler[] hs = handlers;
+		int idx = find(hs, handler);
+		if(idx >= 0) {
+			return idx > 0 ? hs[idx - 1] : null;
+		}
+		Removed r = removedOf(handler);
+		while(r != null) {
+			Handler last = r.last;
+			if(last == null || find(hs, last) >= 0) {
+				return last;
+			}
+			r = removedOf(last);
+		}
+		return null;
+	}
+	
+	private void insert(int idx, Handler handler) {
+		checkNotAdded(handler);
+		Handler[] old = handlers;
+		if(idx > 0 && old[idx - 1].isFinalHandler()) {
+			throw new HandlerException("final-handler must be at last of the handler list.");
+		}
+		if(handler.isFinalHandler() && idx < old.length) {
+			throw new HandlerException("final-handler must be at last of the handler list.");
+		}
+		Handler[] copy = new Handler[old.length + 1];
+		System.arraycopy(old, 0, copy, 0, idx);
+		copy[idx] = handler;
+		System.arraycopy(old, idx, copy, idx + 1, old.length - idx);
+		forget(handler);
+		handlers = copy;
+	}
+	
+	private void markRemoved(Handler handler, Handler[] hs, int idx) {
+		if(removed == null) {
+			removed = Collections.synchronizedMap(new WeakHashMap<>());
+		}
+		removed.put(handler, new Removed(idx > 0 ? hs[idx - 1] : null,
+				idx + 1 < hs.length ? hs[idx + 1] : null));
+	}
+	
+	private void forget(Handler handler) {
+		if(removed != null) {
+			removed.remove(handler);
+		}
+	}
+	
+	private Removed removedOf(Handler handler) {
+		Map<Handler, Removed> r = removed;
+		return r == null ? null : r.get(handler);
+	}
+	
+	private int indexOf(Handler handler) {
+		int idx = find(handlers, handler);
+		if(idx < 0) {
+			throw new HandlerException("handler " + handler.getClass().getSimpleName() + 
+					" is not in the pipeline.");
+		}
+		return idx;
+	}
+	
+	private static int find(Handler[] hs, Handler handler) {
+		for(int i = 0; i < hs.length; i++) {
+			if(hs[i] == handler) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private void checkNotAdded(Handler handler) {
+		if(handler == null) {
+			throw new NullPointerException();
+		}
+		if(contains(handler)) {
+			throw new HandlerException("handler " + handler.getClass().getSimpleName() + 
+					" is already in the pipeline.");
+		}
+	}
+	
+	private static class Removed {
+		
+		Handler last;
+		Handler next;
+		
+		Removed(Handler last, Handler next) {
+			this.last = last;
+			this.next = next;
+		}
+	}
+}
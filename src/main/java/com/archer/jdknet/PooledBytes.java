@@ -0,0 +1,208 @@
+package com.archer.jdknet;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+final class PooledBytes extends RefCountedBytes {
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private ByteBuffer buffer;
+
+	private LeakDetector.Tracker leak;
+
+	protected PooledBytes(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.leak = LeakDetector.track(this);
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public int cap() {
+		return buffer.limit();
+	}
+
+	@Override
+	public byte[] readAll() {
+		return read(buffer.remaining());
+	}
+
+	@Override
+	public byte[] array() {
+		byte[] ret = new byte[buffer.remaining()];
+		buffer.duplicate().get(ret);
+		return ret;
+	}
+
+	@Override
+	public byte byteAt(int index) {
+		if(index >= buffer.remaining()) {
+			throw new IllegalArgumentException("index out of range.");
+		}
+		return buffer.get(buffer.position() + index);
+	}
+
+	@Override
+	public byte[] read(int len) {
+		checkReadable(len);
+		byte[] ret = new byte[len];
+		buffer.get(ret);
+		return ret;
+	}
+
+	@Override
+	public int read(byte[] out, int off, int len) {
+		checkReadable(len);
+		if(off + len > out.length) {
+			throw new IllegalArgumentException("length out of range " + len);
+		}
+		buffer.get(out, off, len);
+		return len;
+	}
+
+	@Override
+	public int readInt8() {
+		checkReadable(1);
+		return buffer.get() & 0xff;
+	}
+
+	@Override
+	public void write(byte[] in, int off, int len) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	public void writeInt8(int i) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	public void clear() {
+		buffer.position(buffer.limit());
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst) {
+		transferTo(dst, Math.min(dst.remaining(), buffer.remaining()));
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer dst, int len) {
+		if(dst.remaining() < len) {
+			throw new IllegalArgumentException("Buffer underflow.");
+		}
+		if(len > buffer.remaining()) {
+			throw new IllegalArgumentException("Bytes underflow.");
+		}
+		transferTo(dst, len);
+	}
+
+	@Override
+	public void readFromByteBuffer(ByteBuffer src) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	public void readFromDirectBuffer(ByteBuffer src) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		ByteBuffer buf = ByteBuffer.allocate(buffer.remaining());
+		buf.put(buffer.duplicate());
+		return buf;
+	}
+
+	@Override
+	public int writeToBytes(Bytes in) {
+		int len = buffer.remaining();
+		if(len > 0) {
+			in.readFromDirectBuffer(buffer);
+		}
+		return len;
+	}
+
+	@Override
+	public int writeToBytes(Bytes in, int len) {
+		checkReadable(len);
+		ByteBuffer src = buffer.duplicate();
+		src.limit(src.position() + len);
+		in.readFromDirectBuffer(src);
+		buffer.position(src.position());
+		return len;
+	}
+
+	@Override
+	public int readFromBytes(Bytes out) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	public int readFromBytes(Bytes out, int len) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	protected void sliceInto(CompositeBytes dst, int len) {
+		checkReadable(len);
+		if(len <= 0) {
+			return ;
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.limit(view.position() + len);
+		dst.addView(view, retain());
+		buffer.position(view.limit());
+	}
+
+	@Override
+	protected long readNumber(int len, boolean littleEndian) {
+		checkReadable(len);
+		long v = 0;
+		int r = buffer.position();
+		if(littleEndian) {
+			for(int i = r + len - 1; i >= r; i--) {
+				v = (v << 8) | (buffer.get(i) & 0xff);
+			}
+		} else {
+			for(int i = r; i < r + len; i++) {
+				v = (v << 8) | (buffer.get(i) & 0xff);
+			}
+		}
+		buffer.position(r + len);
+		return v;
+	}
+
+	@Override
+	protected void writeNumber(long v, int len, boolean littleEndian) {
+		throw new ReadOnlyBufferException();
+	}
+
+	@Override
+	protected void deallocate() {
+		ByteBuffer buf = buffer;
+		buffer = EMPTY_BUFFER;
+		if(leak != null) {
+			leak.close();
+		}
+		BufferPool.release(buf);
+	}
+
+	private void checkReadable(int len) {
+		if(len > buffer.remaining()) {
+			throw new IllegalArgumentException("length out of range, max = " +
+					buffer.remaining() +", provide = " + len);
+		}
+	}
+
+	private void transferTo(ByteBuffer dst, int len) {
+		ByteBuffer src = buffer.duplicate();
+		src.limit(src.position() + len);
+		dst.put(src);
+		buffer.position(src.position());
+	}
+}
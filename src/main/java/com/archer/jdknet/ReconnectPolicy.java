@@ -0,0 +1,77 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class ReconnectPolicy {
+
+	private static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+	private static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+	private static final double DEFAULT_MULTIPLIER = 2.0;
+	private static final double DEFAULT_JITTER = 0.5;
+
+	private long baseDelayMillis = DEFAULT_BASE_DELAY_MILLIS;
+	private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+	private double multiplier = DEFAULT_MULTIPLIER;
+	private double jitter = DEFAULT_JITTER;
+	private int maxAttempts = Integer.MAX_VALUE;
+
+	public ReconnectPolicy() {}
+
+	public ReconnectPolicy baseDelay(long delay, TimeUnit unit) {
+		if(delay <= 0) {
+			throw new IllegalArgumentException("base delay must be positive, provide = " + delay);
+		}
+		this.baseDelayMillis = unit.toMillis(delay);
+		return this;
+	}
+
+	public ReconnectPolicy maxDelay(long delay, TimeUnit unit) {
+		if(delay <= 0) {
+			throw new IllegalArgumentException("max delay must be positive, provide = " + delay);
+		}
+		this.maxDelayMillis = unit.toMillis(delay);
+		return this;
+	}
+
+	public ReconnectPolicy multiplier(double multiplier) {
+		if(multiplier < 1.0) {
+			throw new IllegalArgumentException("multiplier can not be less than 1, provide = " + multiplier);
+		}
+		this.multiplier = multiplier;
+		return this;
+	}
+
+	public ReconnectPolicy jitter(double jitter) {
+		if(jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("jitter must be in [0, 1], provide = " + jitter);
+		}
+		this.jitter = jitter;
+		return this;
+	}
+
+	public ReconnectPolicy maxAttempts(int maxAttempts) {
+		if(maxAttempts <= 0) {
+			throw new IllegalArgumentException("max attempts must be positive, provide = " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	public int maxAttempts() {
+		return maxAttempts;
+	}
+
+	public boolean canRetry(int attempt) {
+		return attempt <= maxAttempts;
+	}
+
+	public long delayMillis(int attempt) {
+		double delay = baseDelayMillis * Math.pow(multiplier, Math.max(attempt - 1, 0));
+		long capped = (long) Math.min(delay, maxDelayMillis);
+		if(jitter > 0) {
+			capped -= (long) (capped * jitter * ThreadLocalRandom.current().nextDouble());
+		}
+		return Math.max(capped, 1);
+	}
+}
@@ -0,0 +1,94 @@
+package com.archer.jdknet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class RecvBufferPredictor {
+
+	private static final int DEFAULT_MINIMUM = 64;
+	private static final int DEFAULT_INITIAL = 2048;
+	private static final int DEFAULT_MAXIMUM = 64 * 1024;
+
+	private static final int INDEX_INCREMENT = 4;
+	private static final int INDEX_DECREMENT = 1;
+
+	private static final int[] SIZE_TABLE;
+
+	static {
+		List<Integer> sizeTable = new ArrayList<>();
+		for(int i = 16; i < 512; i += 16) {
+			sizeTable.add(i);
+		}
+		for(int i = 512; i > 0 && i <= BufferPool.MAX_SIZE; i <<= 1) {
+			sizeTable.add(i);
+		}
+		SIZE_TABLE = new int[sizeTable.size()];
+		for(int i = 0; i < SIZE_TABLE.length; i++) {
+			SIZE_TABLE[i] = sizeTable.get(i);
+		}
+	}
+
+	private int minIndex, maxIndex, index;
+	private int nextReceiveBufferSize;
+	private boolean decreaseNow;
+
+	public RecvBufferPredictor() {
+		this(DEFAULT_MINIMUM, DEFAULT_INITIAL, DEFAULT_MAXIMUM);
+	}
+
+	public RecvBufferPredictor(int minimum, int initial, int maximum) {
+		if(minimum <= 0 || initial < minimum || maximum < initial) {
+			throw new IllegalArgumentException("invalid receive buffer sizes, minimum = " + minimum +
+					", initial = " + initial + ", maximum = " + maximum);
+		}
+		int minIndex = sizeIndex(minimum);
+		this.minIndex = SIZE_TABLE[minIndex] < minimum ? minIndex + 1 : minIndex;
+		int maxIndex = sizeIndex(maximum);
+		this.maxIndex = SIZE_TABLE[maxIndex] > maximum ? maxIndex - 1 : maxIndex;
+		this.index = sizeIndex(initial);
+		this.nextReceiveBufferSize = SIZE_TABLE[index];
+	}
+
+	public int guess() {
+		return nextReceiveBufferSize;
+	}
+
+	public void record(int actualReadBytes) {
+		if(actualReadBytes <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+			if(decreaseNow) {
+				index = Math.max(index - INDEX_DECREMENT, minIndex);
+				nextReceiveBufferSize = SIZE_TABLE[index];
+				decreaseNow = false;
+			} else {
+				decreaseNow = true;
+			}
+		} else if(actualReadBytes >= nextReceiveBufferSize) {
+			index = Math.min(index + INDEX_INCREMENT, maxIndex);
+			nextReceiveBufferSize = SIZE_TABLE[index];
+			decreaseNow = false;
+		}
+	}
+
+	private static int sizeIndex(int size) {
+		for(int low = 0, high = SIZE_TABLE.length - 1;;) {
+			if(high < low) {
+				return Math.min(low, SIZE_TABLE.length - 1);
+			}
+			if(high == low) {
+				return high;
+			}
+			int mid = (low + high) >>> 1;
+			int a = SIZE_TABLE[mid];
+			int b = SIZE_TABLE[mid + 1];
+			if(size > b) {
+				low = mid + 1;
+			} else if(size < a) {
+				high = mid - 1;
+			} else if(size == a) {
+				return mid;
+			} else {
+				return mid + 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+abstract class RefCountedBytes extends Bytes {
+
+	private AtomicInteger refCnt = new AtomicInteger(1);
+
+	protected RefCountedBytes() {
+		super(EMPTY);
+	}
+
+	@Override
+	public int refCnt() {
+		return refCnt.get();
+	}
+
+	@Override
+	public Bytes retain() {
+		for(;;) {
+			int cnt = refCnt.get();
+			if(cnt <= 0) {
+				throw new IllegalStateException("bytes already released.");
+			}
+			if(refCnt.compareAndSet(cnt, cnt + 1)) {
+				return this;
+			}
+		}
+	}
+
+	@Override
+	public void release() {
+		for(;;) {
+			int cnt = refCnt.get();
+			if(cnt <= 0) {
+				throw new IllegalStateException("bytes already released.");
+			}
+			if(refCnt.compareAndSet(cnt, cnt - 1)) {
+				if(cnt == 1) {
+					deallocate();
+				}
+				return ;
+			}
+		}
+	}
+
+	protected abstract void deallocate();
+}
@@ -2,34 +2,45 @@ package com.archer.jdknet;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.CancelledKeyException;
+import java.net.SocketOption;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
-import java.util.Iterator;
+import java.nio.channels.SocketChannel;
 
 public class ServerChannel {
 	
-	private Selector selector;
+	private static final String BOSS_PREFIX = "jdknet-boss";
 	
-    private ServerSocketChannel serverChannel;
+	protected static final int DEFAULT_MAX_ACCEPTS_PER_EVENT = 64;
+
+    private ServerSocketChannel[] serverChannels;
     
     private volatile boolean running;
     
     private HandlerWorker worker;
  
-    private ServerWorkerThread workerThread;
+    private EventLoop[] bossLoops;
+
+    private EventLoopGroup workerGroup;
+
+    private boolean ownWorkerGroup;
     
     private int port;
     
+    private int backlog = 0;
+
+    private int listeners = 1;
+
+    private SocketOptions options = new SocketOptions();
+
+    private SocketOptions childOptions = new SocketOptions();
+
     public ServerChannel() {
         worker = new HandlerWorker();
-        workerThread = new ServerWorkerThread(this);
     }
     
     public ServerChannel(int coreThreads, int maxThreads) {
         worker = new HandlerWorker(coreThreads, maxThreads);
-        workerThread = new ServerWorkerThread(this);
     }
     
     public ServerChannel bind(int port) {
@@ -37,24 +48,144 @@ public class ServerChannel {
         return this;
     }
  
+    public ServerChannel backlog(int backlog) {
+    	if(backlog < 0) {
+    		throw new IllegalArgumentException("backlog can not be negative, provide = " + backlog);
+    	}
+    	this.backlog = backlog;
+    	return this;
+    }
+
+    public ServerChannel reusePort(int listeners) {
+    	if(listeners <= 0) {
+    		throw new IllegalArgumentException("listeners must be positive, provide = " + listeners);
+    	}
+    	if(listeners > 1 && SocketOptions.SO_REUSEPORT == null) {
+    		throw new ChannelException("SO_REUSEPORT is not supported by current jdk.");
+    	}
+    	this.listeners = listeners;
+    	return this;
+    }
+
+    public <T> ServerChannel option(SocketOption<T> option, T value) {
+    	options.set(option, value);
+    	return this;
+    }
+
+    public <T> ServerChannel childOption(SocketOption<T> option, T value) {
+    	childOptions.set(option, value);
+    	return this;
+    }
+
+    public ServerChannel orderedThreads(int laneCount) {
+    	worker.orderedThreads(laneCount);
+    	return this;
+    }
+
+    public ServerChannel workQueue(int capacity, OverflowPolicy policy) {
+    	worker.workQueue(capacity, policy);
+    	return this;
+    }
+
+    public ServerChannel overflowPolicy(OverflowPolicy policy) {
+    	worker.overflowPolicy(policy);
+    	return this;
+    }
+
+    public ServerChannel executorGroup(ExecutorGroup group) {
+    	worker.executorGroup(group);
+    	return this;
+    }
+
+    public int queueDepth() {
+    	return worker.queueDepth();
+    }
+
+    public ServerChannel writeBufferWaterMark(int low, int high) {
+    	worker.writeBufferWaterMark(low, high);
+    	return this;
+    }
+
+    public ServerChannel zeroCopyRead(boolean zeroCopy) {
+    	worker.zeroCopyRead(zeroCopy);
+    	return this;
+    }
+
+    public ServerChannel maxReadsPerEvent(int maxReads) {
+    	worker.maxReadsPerEvent(maxReads);
+    	return this;
+    }
+
+    public ServerChannel maxAcceptsPerEvent(int maxAccepts) {
+    	worker.maxAcceptsPerEvent(maxAccepts);
+    	return this;
+    }
+
+    public ServerChannel eventLoops(int loopCount) {
+    	return eventLoops(loopCount, EventLoopGroup.Strategy.ROUND_ROBIN);
+    }
+
+    public ServerChannel eventLoops(int loopCount, EventLoopGroup.Strategy strategy) {
+    	this.workerGroup = new EventLoopGroup(loopCount, strategy);
+    	this.ownWorkerGroup = true;
+    	return this;
+    }
+
+    public ServerChannel eventLoopGroup(EventLoopGroup group) {
+    	this.workerGroup = group;
+    	this.ownWorkerGroup = false;
+    	return this;
+    }
+
     public void start() throws IOException {
-    	if(selector == null || !selector.isOpen()) {
-            selector = Selector.open();
+    	if(workerGroup == null) {
+    		eventLoops(Runtime.getRuntime().availableProcessors());
+    	}
+    	try(ServerSocketChannel probe = ServerSocketChannel.open()) {
+    		if(listeners > 1 && !probe.supportedOptions().contains(SocketOptions.SO_REUSEPORT)) {
+    			throw new ChannelException("SO_REUSEPORT is not supported by current platform.");
+    		}
+    		options.checkSupported(probe.supportedOptions(), "ServerSocketChannel");
     	}
-        serverChannel = ServerSocketChannel.open();
-        serverChannel.socket().bind(new InetSocketAddress(port));
-        serverChannel.configureBlocking(false);
-        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    	if(!childOptions.isEmpty()) {
+    		try(SocketChannel probe = SocketChannel.open()) {
+    			childOptions.checkSupported(probe.supportedOptions(), "SocketChannel");
+    		}
+    	}
+        serverChannels = new ServerSocketChannel[listeners];
+        try {
+        	for(int i = 0; i < listeners; i++) {
+        		serverChannels[i] = openListener();
+        	}
+        } catch(IOException | RuntimeException e) {
+        	closeListeners();
+        	throw e;
+        }
         if(!worker.isAlive()) {
         	worker.reStart();
         }
-    	workerThread.start();
+        workerGroup.start();
+        bossLoops = new EventLoop[listeners];
+        for(int i = 0; i < listeners; i++) {
+        	bossLoops[i] = new EventLoop(BOSS_PREFIX);
+        	bossLoops[i].start();
+        	bossLoops[i].register(serverChannels[i], SelectionKey.OP_ACCEPT, this);
+        }
+        running = true;
     }
     
     public void stop() throws IOException {
     	running = false;
-    	serverChannel.close();
-    	selector.close();
+    	closeListeners();
+    	if(bossLoops != null) {
+    		for(EventLoop bossLoop: bossLoops) {
+    			bossLoop.shutdown();
+    		}
+    	}
+    	if(ownWorkerGroup) {
+    		workerGroup.shutdown();
+    	}
+    	worker.close();
     }
     
     public boolean isAlive() {
@@ -76,65 +207,57 @@ public class ServerChannel {
     	return this;
     }
     
+    public ServerChannel initializer(ChannelInitializer initializer) {
+    	worker.initializer(initializer);
+    	return this;
+    }
+
     public HandlerWorker handlerWorker() {
     	return worker;
     }
+
+    public EventLoopGroup eventLoopGroup() {
+    	return workerGroup;
+    }
     
     public boolean handlerInitialized() {
     	return worker.handlerInitialized();
     }
 
-    private void run() {
-        try {
-        	running = true;
-            while (running) {
-                if(selector.select() <= 0) {
-                	continue;
-                }
-                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-                while (it.hasNext()) {
-                    SelectionKey sk = it.next();
-                    it.remove();
-                    if(sk.isValid()) {
-                    	handle(sk);
-                    }
-                }
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        } finally {
-            try {
-                serverChannel.close();
-                selector.close();
-            } catch(Exception ignore) {}
-            worker.close();
-        }
+    @SuppressWarnings("unchecked")
+    private ServerSocketChannel openListener() throws IOException {
+    	ServerSocketChannel serverChannel = ServerSocketChannel.open();
+    	try {
+    		if(listeners > 1) {
+    			serverChannel.setOption((SocketOption<Boolean>) SocketOptions.SO_REUSEPORT, true);
+    		}
+    		options.applyTo(serverChannel);
+    		serverChannel.bind(new InetSocketAddress(port), backlog);
+    		serverChannel.configureBlocking(false);
+    	} catch(IOException | RuntimeException e) {
+    		serverChannel.close();
+    		throw e;
+    	}
+    	return serverChannel;
     }
     
-    private void handle(SelectionKey sk) {
-    	try {
-    		if(sk.isAcceptable()) {
-    			worker.onAccept(sk);
+    private void closeListeners() {
+    	if(serverChannels == null) {
+    		return ;
+    	}
+    	for(ServerSocketChannel serverChannel: serverChannels) {
+    		if(serverChannel == null) {
+    			continue;
     		} 
-    		if (sk.isReadable()) {
-    			worker.onRead(sk);
-            }
-    	} catch(CancelledKeyException ignore) {
-    		worker.onClose(sk);
+    		try {
+    			serverChannel.close();
+    		} catch(IOException ignore) {}
     	}
     }
     
-    private static class ServerWorkerThread extends Thread {
-    	
-    	ServerChannel server;
-    	
-    	public ServerWorkerThread(ServerChannel server) {
-    		this.server = server;
-    	}
-    	
-    	@Override
-    	public void run() {
-    		server.run();
+    protected void accept(SelectionKey sk) {
+    	if(sk.isAcceptable()) {
+    		worker.onAccept(sk, workerGroup, childOptions);
     	}
     }
 }
@@ -0,0 +1,61 @@
+package com.archer.jdknet;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+final class SocketOptions {
+
+	protected static final SocketOption<?> SO_REUSEPORT = lookupReusePort();
+
+	private volatile Map<SocketOption<?>, Object> options = new LinkedHashMap<>();
+
+	protected synchronized <T> void set(SocketOption<T> option, T value) {
+		if(option == null) {
+			throw new NullPointerException();
+		}
+		Map<SocketOption<?>, Object> copy = new LinkedHashMap<>(options);
+		if(value == null) {
+			copy.remove(option);
+		} else {
+			copy.put(option, value);
+		}
+		options = copy;
+	}
+
+	protected boolean isEmpty() {
+		return options.isEmpty();
+	}
+
+	protected void checkSupported(Set<SocketOption<?>> supported, String type) {
+		for(SocketOption<?> option: options.keySet()) {
+			if(!supported.contains(option)) {
+				throw new ChannelException("socket option " + option.name() + " is not supported by " + type);
+			}
+		}
+	}
+
+	protected void applyTo(NetworkChannel channel) throws IOException {
+		checkSupported(channel.supportedOptions(), channel.getClass().getSimpleName());
+		setOn(channel);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void setOn(NetworkChannel channel) throws IOException {
+		for(Map.Entry<SocketOption<?>, Object> e: options.entrySet()) {
+			channel.setOption((SocketOption) e.getKey(), e.getValue());
+		}
+	}
+
+	private static SocketOption<?> lookupReusePort() {
+		try {
+			return (SocketOption<?>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch(Exception e) {
+			return null;
+		}
+	}
+}
@@ -4,10 +4,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -23,7 +21,7 @@ public class SslHandler extends Handler {
 	
 	private static final String PROTOCOL = "TLS";
 	
-	private static ConcurrentHashMap<Channel, SslStuff> sslBufferCache = new ConcurrentHashMap<>();
+	private static final AttributeKey<SslStuff> SSL_STUFF = AttributeKey.valueOf(SslHandler.class, "stuff");
 	
     private SSLContext context;
     
@@ -72,124 +70,131 @@ public class SslHandler extends Handler {
     }
 
 
-    private boolean doHandshake(SocketChannel socketChannel, SslStuff stuff) 
+    private Bytes doHandshake(Channel channel, SslStuff stuff, Bytes in) 
     		throws IOException {
         SSLEngine engine = stuff.engine;
-        engine.beginHandshake();
-        
         int appBufferSize = engine.getSession().getApplicationBufferSize();
         int packetBufferSize = engine.getSession().getPacketBufferSize();
         
-        ByteBuffer myAppData = ByteBuffer.allocate(appBufferSize);
-        ByteBuffer peerAppData = ByteBuffer.allocate(appBufferSize);
-        stuff.netData.clear();
-        stuff.peerNetData.clear();
+        if(stuff.handshakeData == null) {
+        	stuff.handshakeData = new Bytes(packetBufferSize);
+        }
+        Bytes handshakeData = stuff.handshakeData;
+        if(in != null && in.available() > 0) {
+        	handshakeData.readFromBytes(in);
+        }
+        
+        ByteBuffer myAppData = BufferPool.acquire(appBufferSize);
+        ByteBuffer peerAppData = BufferPool.acquire(appBufferSize);
+        ByteBuffer netData = BufferPool.acquire(packetBufferSize);
+        ByteBuffer peerNetData = BufferPool.acquire(Math.max(packetBufferSize, handshakeData.available()));
+        myAppData.flip();
+        handshakeData.writeToByteBuffer(peerNetData);
+        peerNetData.flip();
 
         SSLEngineResult result;
         HandshakeStatus handshakeStatus = engine.getHandshakeStatus();
-        while (handshakeStatus != HandshakeStatus.FINISHED
-        		&& handshakeStatus != HandshakeStatus.NOT_HANDSHAKING) {
-            switch (handshakeStatus) {
-            case NEED_UNWRAP:
-                if (socketChannel.read(stuff.peerNetData) < 0) {
-                    if (engine.isInboundDone() && engine.isOutboundDone()) {
-                        return false;
-                    }
-                    try {
-                        engine.closeInbound();
-                    } catch (SSLException e) {
-                    	e.printStackTrace();
-                        System.err.println("This engine was forced to close inbound, "
-                        	+ "without having received the proper "
-                        	+ "SSL/TLS close notification message "
-                        	+ "from the peer, due to end of stream.");
+        try {
+            handshake:
+            while (handshakeStatus != HandshakeStatus.FINISHED
+            		&& handshakeStatus != HandshakeStatus.NOT_HANDSHAKING) {
+                switch (handshakeStatus) {
+                case NEED_UNWRAP:
+                	peerAppData.clear();
+                	result = engine.unwrap(peerNetData, peerAppData);
+                    handshakeStatus = result.getHandshakeStatus();
+                    switch (result.getStatus()) {
+                    case OK:
+                        break;
+                    case BUFFER_OVERFLOW:
+                        peerAppData = SslStuff.enlargeBuffer(peerAppData, appBufferSize);
+                        break;
+                    case BUFFER_UNDERFLOW:
+                    	break handshake;
+                    case CLOSED:
+                    	SslStuff.closeConnection(channel, stuff);
+                    	throw new ChannelException("ssl handshake failed.");
+                    default:
+                        throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
                     }
-                    engine.closeOutbound();
-                    handshakeStatus = engine.getHandshakeStatus();
-                    break;
-                }
-                stuff.peerNetData.flip();
-            	result = engine.unwrap(stuff.peerNetData, peerAppData);
-                stuff.peerNetData.compact();
-                handshakeStatus = result.getHandshakeStatus();
-                switch (result.getStatus()) {
-                case OK:
-                    break;
-                case BUFFER_OVERFLOW:
-                    peerAppData = SslStuff.enlargeBuffer(peerAppData, appBufferSize);
                     break;
-                case BUFFER_UNDERFLOW:
-                	stuff.peerNetData = SslStuff.handleBufferUnderflow(stuff.peerNetData, packetBufferSize);
-                    break;
-                case CLOSED:
-                    if (engine.isOutboundDone()) {
-                        return false;
-                    } else {
-                        engine.closeOutbound();
-                        handshakeStatus = engine.getHandshakeStatus();
+                case NEED_WRAP:
+                    netData.clear();
+                    result = engine.wrap(myAppData, netData);
+                    handshakeStatus = result.getHandshakeStatus();
+                    switch (result.getStatus()) {
+                    case OK :
+                    	netData.flip();
+                    	writeHandshake(channel, netData);
                         break;
+                    case BUFFER_OVERFLOW:
+                        netData = SslStuff.enlargeBuffer(netData, packetBufferSize);
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        throw new SSLException("Buffer underflow occured after a wrap.");
+                    case CLOSED:
+                        try {
+                        	netData.flip();
+                        	writeHandshake(channel, netData);
+                        } catch (IOException e) {
+                            System.err.println("Failed to send server's CLOSE message "
+                            		+ "due to socket channel's failure.");
+                        }
+                    	SslStuff.closeConnection(channel, stuff);
+                    	throw new ChannelException("ssl handshake failed.");
+                    default:
+                        throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
                     }
-                default:
-                    throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
-                }
-                break;
-            case NEED_WRAP:
-                stuff.netData.clear();
-                result = engine.wrap(myAppData, stuff.netData);
-                handshakeStatus = result.getHandshakeStatus();
-                switch (result.getStatus()) {
-                case OK :
-                	stuff.netData.flip();
-                    while (stuff.netData.hasRemaining()) {
-                        socketChannel.write(stuff.netData);
-                    }
-                    break;
-                case BUFFER_OVERFLOW:
-                    stuff.netData = SslStuff.enlargeBuffer(stuff.netData, packetBufferSize);
                     break;
-                case BUFFER_UNDERFLOW:
-                    throw new SSLException("Buffer underflow occured after a wrap.");
-                case CLOSED:
-                    try {
-                    	stuff.netData.flip();
-                        while (stuff.netData.hasRemaining()) {
-                            socketChannel.write(stuff.netData);
-                        }
-                        stuff.peerNetData.clear();
-                    } catch (IOException e) {
-                        System.err.println("Failed to send server's CLOSE message "
-                        		+ "due to socket channel's failure.");
-                        handshakeStatus = engine.getHandshakeStatus();
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
                     }
+                    handshakeStatus = engine.getHandshakeStatus();
                     break;
                 default:
-                    throw new IllegalStateException("Invalid SSL status: " + result.getStatus());
-                }
-                break;
-            case NEED_TASK:
-                Runnable task;
-                while ((task = engine.getDelegatedTask()) != null) {
-                    task.run();
+                    throw new IllegalStateException("Invalid SSL status: " + handshakeStatus);
                 }
-                handshakeStatus = engine.getHandshakeStatus();
-                break;
-            case FINISHED:
-            case NOT_HANDSHAKING:
-                break;
-            default:
-                throw new IllegalStateException("Invalid SSL status: " + handshakeStatus);
             }
+            handshakeData.clear();
+            handshakeData.readFromDirectBuffer(peerNetData);
+            if(handshakeStatus != HandshakeStatus.FINISHED
+            		&& handshakeStatus != HandshakeStatus.NOT_HANDSHAKING) {
+            	return null;
+            }
+            stuff.handshaked = true;
+            stuff.handshakeData = null;
+            return handshakeData;
+        } finally {
+            BufferPool.release(myAppData);
+            BufferPool.release(peerAppData);
+            BufferPool.release(netData);
+            BufferPool.release(peerNetData);
         }
-        return true;
+    }
+    
+    private void writeHandshake(Channel channel, ByteBuffer netData) throws IOException {
+    	if(!netData.hasRemaining()) {
+    		return ;
+    	}
+    	Bytes out = new Bytes(netData.remaining());
+    	out.readFromDirectBuffer(netData);
+    	channel.write(out);
     }
 
 	@Override
 	public void onConnect(Channel channel) throws Exception {
 		SslStuff stuff = getBufSet(channel);
-		if(doHandshake(channel.socketChannel(), stuff)) {
+		Bytes remain;
+		synchronized(stuff) {
+			channel.handshakeStarted();
+			stuff.engine.beginHandshake();
+			remain = doHandshake(channel, stuff, null);
+		}
+		if(remain != null) {
 			toNextOnConnect(channel);
-		} else {
-			throw new ChannelException("ssl handshake failed.");
+			channel.handshakeCompleted();
 		}
 	}
 
@@ -197,9 +202,32 @@ public class SslHandler extends Handler {
 	@Override
 	public void onRead(Channel channel, Bytes in) throws Exception {
 		SslStuff stuff = getBufSet(channel);
+		if(!stuff.handshaked) {
+			boolean connected = false;
+			synchronized(stuff) {
+				if(!stuff.handshaked) {
+					in = doHandshake(channel, stuff, in);
+					if(in == null) {
+						return ;
+					}
+					connected = true;
+				}
+			}
+			if(connected) {
+				toNextOnConnect(channel);
+				channel.handshakeCompleted();
+				if(in.available() <= 0) {
+					return ;
+				}
+			}
+		}
 		Bytes read = stuff.sslMessage.unwrap(channel, stuff, in);
 		if(read != null) {
-			toNextOnRead(channel, read);
+			try {
+				toNextOnRead(channel, read);
+			} finally {
+				read.release();
+			}
 		}
 	}
 	
@@ -207,12 +235,16 @@ public class SslHandler extends Handler {
 	public void onWrite(Channel channel, Bytes out) throws Exception {
 		SslStuff stuff = getBufSet(channel);
 		Bytes appOut = stuff.sslMessage.wrap(channel, stuff, out);
-		toLastOnWrite(channel, appOut);
+		try {
+			toLastOnWrite(channel, appOut);
+		} finally {
+			appOut.release();
+		}
 	}
 
 	@Override
 	public void onDisconnect(Channel channel) throws Exception {
-		sslBufferCache.remove(channel);
+		channel.removeAttr(SSL_STUFF);
 		toNextOnDisconnect(channel);
 	}
 
@@ -228,12 +260,12 @@ public class SslHandler extends Handler {
 	}
 
 	private SslStuff getBufSet(Channel channel) {
-		SslStuff stuff = sslBufferCache.getOrDefault(channel, null);
+		SslStuff stuff = channel.attr(SSL_STUFF);
 		if(stuff == null) {
 			SSLEngine engine = context.createSSLEngine();
 			engine.setUseClientMode(channel.isClientMode());
-			stuff = new SslStuff(Bytes.BUFFER_SIZE, engine.getSession().getPacketBufferSize(), engine);
-			sslBufferCache.put(channel, stuff);
+			stuff = new SslStuff(engine);
+			stuff = channel.attrIfAbsent(SSL_STUFF, stuff);
 		}
 		return stuff;
 	}
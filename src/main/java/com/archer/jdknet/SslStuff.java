@@ -14,23 +14,15 @@ import javax.net.ssl.X509ExtendedTrustManager;
 
 final class SslStuff {
 	
-	ByteBuffer appData;
-
-	ByteBuffer netData;
-
-	ByteBuffer peerAppData;
-
-	ByteBuffer peerNetData;
-	
 	SSLEngine engine;
 	
 	SslMessage sslMessage;
+	
+	volatile boolean handshaked;
+	
+	Bytes handshakeData;
     
-    public SslStuff(int appDataSize, int netDataSize, SSLEngine engine) {
-    	appData = ByteBuffer.allocate(appDataSize);
-    	netData = ByteBuffer.allocate(netDataSize);
-        peerAppData = ByteBuffer.allocate(appDataSize);
-        peerNetData = ByteBuffer.allocate(netDataSize);
+    public SslStuff(SSLEngine engine) {
         this.engine = engine;
         sslMessage = new SslMessage();
     }
@@ -54,19 +46,21 @@ final class SslStuff {
     }};
 
     public static ByteBuffer enlargeBuffer(ByteBuffer buffer, int sessionProposedCapacity) {
+    	BufferPool.release(buffer);
         if (sessionProposedCapacity > buffer.capacity()) {
-            buffer = ByteBuffer.allocate(sessionProposedCapacity);
+            buffer = BufferPool.acquire(sessionProposedCapacity);
         } else {
-            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer = BufferPool.acquire(buffer.capacity() * 2);
         }
         return buffer;
     }
 
     public static ByteBuffer handleBufferUnderflow(ByteBuffer buffer, int pactetSize) {
         if (pactetSize > buffer.capacity()) {
-        	ByteBuffer replaceBuffer = ByteBuffer.allocate(pactetSize);
+        	ByteBuffer replaceBuffer = BufferPool.acquire(pactetSize);
         	buffer.flip();
         	replaceBuffer.put(buffer);
+        	BufferPool.release(buffer);
         	return replaceBuffer;
         }
         return buffer;
@@ -84,17 +78,13 @@ final class SslStuff {
     
     public class SslMessage {
 
+        private static final int TLS_HEAD_LEN = 5;
+        
         private ReentrantLock packetLock = new ReentrantLock(true);
-    	
-        private Bytes bytes;
         
-//        private volatile boolean running;
-    	
-    	public SslMessage() {
-    		bytes = new Bytes();
-//    		running = false;
-    	}
+        private Bytes pending;
     	
+    	public SslMessage() {}
         
         public Bytes unwrap(Channel channel, SslStuff stuff, Bytes read) throws IOException {
             SSLEngine engine = stuff.engine;
@@ -102,32 +92,42 @@ final class SslStuff {
             int packetBufferSize = engine.getSession().getPacketBufferSize();
 
             packetLock.lock();
+            Bytes bytes = null;
+            ByteBuffer peerNetData = BufferPool.acquire(packetBufferSize);
+            ByteBuffer peerAppData = BufferPool.acquire(appBufferSize);
             try {
-//                if(running) {
-//                	return null;
-//                }
-//                running = true;
-                while(read.available() > 0) {
-                	int len = getTlsPacketLength(read.byteAt(3), read.byteAt(4)) + 5;
+            	if(pending != null) {
+            		pending.readFromBytes(read);
+            		read = pending;
+            	}
+                while(read.available() >= TLS_HEAD_LEN) {
+                	int len = getTlsPacketLength(read.byteAt(3), read.byteAt(4)) + TLS_HEAD_LEN;
                 	if(len > read.available()) {
                 		break ;
                 	}
-                	stuff.peerNetData.clear();
-                	read.writeToByteBuffer(stuff.peerNetData, len);
-                	stuff.peerNetData.flip();
-                	while (stuff.peerNetData.hasRemaining()) {
-                		stuff.peerAppData.clear();
-                        SSLEngineResult result = engine.unwrap(stuff.peerNetData, stuff.peerAppData);
+                	if(len > peerNetData.capacity()) {
+                		BufferPool.release(peerNetData);
+                		peerNetData = BufferPool.acquire(len);
+                	}
+                	peerNetData.clear();
+                	read.writeToByteBuffer(peerNetData, len);
+                	peerNetData.flip();
+                	while (peerNetData.hasRemaining()) {
+                		peerAppData.clear();
+                        SSLEngineResult result = engine.unwrap(peerNetData, peerAppData);
                         switch (result.getStatus()) {
                         case OK:
-                        	stuff.peerAppData.flip();
-                        	bytes.readFromByteBuffer(stuff.peerAppData);
+                        	peerAppData.flip();
+                        	if(bytes == null) {
+                        		bytes = new DirectBytes(appBufferSize);
+                        	}
+                        	bytes.readFromByteBuffer(peerAppData);
                         	break;
                         case BUFFER_OVERFLOW:
-                        	stuff.peerAppData = enlargeBuffer(stuff.peerAppData, appBufferSize);
+                        	peerAppData = enlargeBuffer(peerAppData, appBufferSize);
                             break;
                         case BUFFER_UNDERFLOW:
-                        	stuff.peerNetData = handleBufferUnderflow(stuff.peerNetData, packetBufferSize);
+                        	peerNetData = handleBufferUnderflow(peerNetData, packetBufferSize);
                             break;
                         case CLOSED:
                     		System.err.println(Thread.currentThread().getName()+": ssl closed");
@@ -138,48 +138,74 @@ final class SslStuff {
                         }
                     }
                 }
-                if(bytes.available() > 0) {
-                	Bytes out = bytes;
-                	bytes = new Bytes();
-                    return out;
+                if(read.available() <= 0) {
+                	pending = null;
+                } else if(pending == null) {
+                	pending = new Bytes(packetBufferSize);
+                	pending.readFromBytes(read);
+                }
+                if(bytes != null && bytes.available() > 0) {
+                    return bytes;
+                }
+                if(bytes != null) {
+                	bytes.release();
                 }
                 return null;
+            } catch(IOException | RuntimeException e) {
+            	if(bytes != null) {
+            		bytes.release();
+            	}
+            	throw e;
             } finally {
-//                running = false;
                 packetLock.unlock();
+                BufferPool.release(peerNetData);
+                BufferPool.release(peerAppData);
             }
         }
 
         public Bytes wrap(Channel channel, SslStuff stuff, Bytes out) throws IOException {
             SSLEngine engine = stuff.engine;
+            int appBufferSize = engine.getSession().getApplicationBufferSize();
             int packetBufferSize = engine.getSession().getPacketBufferSize();
-            Bytes write = new Bytes();
+            Bytes write = new DirectBytes(Math.min(out.available() + packetBufferSize, BufferPool.MAX_SIZE));
             
-            stuff.appData.clear();
-            out.writeToByteBuffer(stuff.appData);
-            stuff.appData.flip();
-            while (stuff.appData.hasRemaining()) {
-                stuff.netData.clear();
-                SSLEngineResult result = engine.wrap(stuff.appData, stuff.netData);
-                switch (result.getStatus()) {
-                case OK:
-                    stuff.netData.flip();
-                    while (stuff.netData.hasRemaining()) {
-                    	write.readFromByteBuffer(stuff.netData);
+            ByteBuffer appData = BufferPool.acquire(appBufferSize);
+            ByteBuffer netData = BufferPool.acquire(packetBufferSize);
+            try {
+            	while(out.available() > 0) {
+                    appData.clear();
+                    out.writeToByteBuffer(appData);
+                    appData.flip();
+                    while (appData.hasRemaining()) {
+                        netData.clear();
+                        SSLEngineResult result = engine.wrap(appData, netData);
+                        switch (result.getStatus()) {
+                        case OK:
+                            netData.flip();
+                            while (netData.hasRemaining()) {
+                            	write.readFromByteBuffer(netData);
+                            }
+                            break;
+                        case BUFFER_OVERFLOW:
+                            netData = enlargeBuffer(netData, packetBufferSize);
+                            break;
+                        case BUFFER_UNDERFLOW:
+                            throw new SSLException("Buffer underflow occured after a wrap. "
+                            		+ "I don't think we should ever get here.");
+                        case CLOSED:
+                            closeConnection(channel, stuff);
+                            throw new SSLException("Ssl channel closed.");
+                        default:
+                            throw new SSLException("Invalid SSL status: " + result.getStatus());
+                        }
                     }
-                    break;
-                case BUFFER_OVERFLOW:
-                    stuff.netData = enlargeBuffer(stuff.netData, packetBufferSize);
-                    break;
-                case BUFFER_UNDERFLOW:
-                    throw new SSLException("Buffer underflow occured after a wrap. "
-                    		+ "I don't think we should ever get here.");
-                case CLOSED:
-                    closeConnection(channel, stuff);
-                    throw new SSLException("Ssl channel closed.");
-                default:
-                    throw new SSLException("Invalid SSL status: " + result.getStatus());
-                }
+            	}
+            } catch(IOException | RuntimeException e) {
+            	write.release();
+            	throw e;
+            } finally {
+            	BufferPool.release(appData);
+            	BufferPool.release(netData);
             }
             return write;
         }
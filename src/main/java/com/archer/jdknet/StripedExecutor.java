@@ -0,0 +1,83 @@
+package com.archer.jdknet;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class StripedExecutor {
+
+	private ThreadPoolExecutor[] lanes;
+
+	private AtomicInteger nextLane = new AtomicInteger(0);
+
+	public StripedExecutor(String name, int laneCount, int queueCapacity, ExecutorGroup group) {
+		if(laneCount <= 0) {
+			throw new IllegalArgumentException("lane count must be positive, provide = " + laneCount);
+		}
+		lanes = new ThreadPoolExecutor[laneCount];
+		for(int i = 0; i < laneCount; i++) {
+			lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					queueCapacity > 0 ? new WorkQueue(queueCapacity) : new LinkedBlockingQueue<Runnable>(),
+					new LaneThreadFactory(group, name + "-" + i));
+		}
+	}
+
+	public void execute(Channel ch, Runnable task) {
+		int lane = ch.lane();
+		if(lane < 0) {
+			lane = nextLane.getAndIncrement() & Integer.MAX_VALUE;
+			ch.lane(lane);
+		}
+		lanes[lane % lanes.length].execute(task);
+	}
+
+	public int laneCount() {
+		return lanes.length;
+	}
+
+	public int queueDepth() {
+		int depth = 0;
+		for(ThreadPoolExecutor lane: lanes) {
+			depth += lane.getQueue().size();
+		}
+		return depth;
+	}
+
+	public int queueDepth(Channel ch) {
+		int lane = ch.lane();
+		return lane < 0 ? 0 : lanes[lane % lanes.length].getQueue().size();
+	}
+
+	public void shutdown() {
+		for(ThreadPoolExecutor lane: lanes) {
+			lane.shutdown();
+		}
+	}
+
+	public boolean isTerminated() {
+		for(ThreadPoolExecutor lane: lanes) {
+			if(!lane.isTerminated()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static class LaneThreadFactory implements ThreadFactory {
+
+		private ExecutorGroup group;
+		private String name;
+
+		public LaneThreadFactory(ExecutorGroup group, String name) {
+			this.group = group;
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new ExecutorGroup.GroupThread(group, r, name);
+		}
+	}
+}
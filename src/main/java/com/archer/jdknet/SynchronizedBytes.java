@@ -0,0 +1,366 @@
+package com.archer.jdknet;
+
+import java.nio.ByteBuffer;
+
+final class SynchronizedBytes extends Bytes {
+
+	private Bytes bytes;
+
+	private Object lock = new Object();
+
+	protected SynchronizedBytes(Bytes bytes) {
+		super(EMPTY);
+		this.bytes = bytes;
+	}
+
+	@Override
+	public int available() {
+		synchronized(lock) {
+			return bytes.available();
+		}
+	}
+
+	@Override
+	public int cap() {
+		synchronized(lock) {
+			return bytes.cap();
+		}
+	}
+
+	@Override
+	public byte[] readAll() {
+		synchronized(lock) {
+			return bytes.readAll();
+		}
+	}
+
+	@Override
+	public byte[] array() {
+		synchronized(lock) {
+			return bytes.array();
+		}
+	}
+
+	@Override
+	public byte byteAt(int index) {
+		synchronized(lock) {
+			return bytes.byteAt(index);
+		}
+	}
+
+	@Override
+	public byte[] read(int len) {
+		synchronized(lock) {
+			return bytes.read(len);
+		}
+	}
+
+	@Override
+	public int read(byte[] out) {
+		synchronized(lock) {
+			return bytes.read(out);
+		}
+	}
+
+	@Override
+	public int read(byte[] out, int off, int len) {
+		synchronized(lock) {
+			return bytes.read(out, off, len);
+		}
+	}
+
+	@Override
+	public int readInt8() {
+		synchronized(lock) {
+			return bytes.readInt8();
+		}
+	}
+
+	@Override
+	public int readInt16() {
+		synchronized(lock) {
+			return bytes.readInt16();
+		}
+	}
+
+	@Override
+	public int readInt24() {
+		synchronized(lock) {
+			return bytes.readInt24();
+		}
+	}
+
+	@Override
+	public int readInt32() {
+		synchronized(lock) {
+			return bytes.readInt32();
+		}
+	}
+
+	@Override
+	public long readInt64() {
+		synchronized(lock) {
+			return bytes.readInt64();
+		}
+	}
+
+	@Override
+	public int readInt16LE() {
+		synchronized(lock) {
+			return bytes.readInt16LE();
+		}
+	}
+
+	@Override
+	public int readInt24LE() {
+		synchronized(lock) {
+			return bytes.readInt24LE();
+		}
+	}
+
+	@Override
+	public int readInt32LE() {
+		synchronized(lock) {
+			return bytes.readInt32LE();
+		}
+	}
+
+	@Override
+	public long readInt64LE() {
+		synchronized(lock) {
+			return bytes.readInt64LE();
+		}
+	}
+
+	@Override
+	public int readVarInt() {
+		synchronized(lock) {
+			return bytes.readVarInt();
+		}
+	}
+
+	@Override
+	public long readVarLong() {
+		synchronized(lock) {
+			return bytes.readVarLong();
+		}
+	}
+
+	@Override
+	public void write(byte[] in) {
+		synchronized(lock) {
+			bytes.write(in);
+		}
+	}
+
+	@Override
+	public void write(byte[] in, int off, int len) {
+		synchronized(lock) {
+			bytes.write(in, off, len);
+		}
+	}
+
+	@Override
+	public void writeInt8(int i) {
+		synchronized(lock) {
+			bytes.writeInt8(i);
+		}
+	}
+
+	@Override
+	public void writeInt16(int i) {
+		synchronized(lock) {
+			bytes.writeInt16(i);
+		}
+	}
+
+	@Override
+	public void writeInt24(int i) {
+		synchronized(lock) {
+			bytes.writeInt24(i);
+		}
+	}
+
+	@Override
+	public void writeInt32(int i) {
+		synchronized(lock) {
+			bytes.writeInt32(i);
+		}
+	}
+
+	@Override
+	public void writeInt64(long i) {
+		synchronized(lock) {
+			bytes.writeInt64(i);
+		}
+	}
+
+	@Override
+	public void writeInt16LE(int i) {
+		synchronized(lock) {
+			bytes.writeInt16LE(i);
+		}
+	}
+
+	@Override
+	public void writeInt24LE(int i) {
+		synchronized(lock) {
+			bytes.writeInt24LE(i);
+		}
+	}
+
+	@Override
+	public void writeInt32LE(int i) {
+		synchronized(lock) {
+			bytes.writeInt32LE(i);
+		}
+	}
+
+	@Override
+	public void writeInt64LE(long i) {
+		synchronized(lock) {
+			bytes.writeInt64LE(i);
+		}
+	}
+
+	@Override
+	public void writeVarInt(int i) {
+		synchronized(lock) {
+			bytes.writeVarInt(i);
+		}
+	}
+
+	@Override
+	public void writeVarLong(long i) {
+		synchronized(lock) {
+			bytes.writeVarLong(i);
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized(lock) {
+			bytes.clear();
+		}
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer buffer) {
+		synchronized(lock) {
+			bytes.writeToByteBuffer(buffer);
+		}
+	}
+
+	@Override
+	public void writeToByteBuffer(ByteBuffer buffer, int len) {
+		synchronized(lock) {
+			bytes.writeToByteBuffer(buffer, len);
+		}
+	}
+
+	@Override
+	public void readFromByteBuffer(ByteBuffer buffer) {
+		synchronized(lock) {
+			bytes.readFromByteBuffer(buffer);
+		}
+	}
+
+	@Override
+	public void writeToDirectBuffer(ByteBuffer buffer) {
+		synchronized(lock) {
+			bytes.writeToDirectBuffer(buffer);
+		}
+	}
+
+	@Override
+	public void readFromDirectBuffer(ByteBuffer buffer) {
+		synchronized(lock) {
+			bytes.readFromDirectBuffer(buffer);
+		}
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		synchronized(lock) {
+			return bytes.toByteBuffer();
+		}
+	}
+
+	@Override
+	public int writeToBytes(Bytes in) {
+		synchronized(lock) {
+			return bytes.writeToBytes(in);
+		}
+	}
+
+	@Override
+	public int writeToBytes(Bytes in, int len) {
+		synchronized(lock) {
+			return bytes.writeToBytes(in, len);
+		}
+	}
+
+	@Override
+	public int readFromBytes(Bytes out) {
+		synchronized(lock) {
+			return bytes.readFromBytes(out);
+		}
+	}
+
+	@Override
+	public int readFromBytes(Bytes out, int len) {
+		synchronized(lock) {
+			return bytes.readFromBytes(out, len);
+		}
+	}
+
+	@Override
+	public int refCnt() {
+		synchronized(lock) {
+			return bytes.refCnt();
+		}
+	}
+
+	@Override
+	public void release() {
+		synchronized(lock) {
+			bytes.release();
+		}
+	}
+
+	@Override
+	public Bytes readSlice(int len) {
+		synchronized(lock) {
+			return bytes.readSlice(len);
+		}
+	}
+
+	@Override
+	public Bytes retain() {
+		synchronized(lock) {
+			bytes.retain();
+		}
+		return this;
+	}
+
+	@Override
+	protected void sliceInto(CompositeBytes dst, int len) {
+		synchronized(lock) {
+			bytes.sliceInto(dst, len);
+		}
+	}
+
+	@Override
+	protected long readNumber(int len, boolean littleEndian) {
+		synchronized(lock) {
+			return bytes.readNumber(len, littleEndian);
+		}
+	}
+
+	@Override
+	protected void writeNumber(long v, int len, boolean littleEndian) {
+		synchronized(lock) {
+			bytes.writeNumber(v, len, littleEndian);
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.archer.jdknet;
+
+public interface Timeout {
+
+	boolean cancel();
+
+	boolean isCancelled();
+
+	boolean isExpired();
+}
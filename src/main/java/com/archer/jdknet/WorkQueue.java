@@ -0,0 +1,298 @@
+package com.archer.jdknet;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class WorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final long PUT_PARK_NANOS = 100_000;
+	private static final Runnable REMOVED = () -> {};
+
+	private final int capacity;
+	private final int mask;
+
+	private final AtomicReferenceArray<Runnable> slots;
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong head = new AtomicLong(0);
+	private final AtomicLong tail = new AtomicLong(0);
+	private final AtomicInteger removed = new AtomicInteger(0);
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final AtomicInteger waiters = new AtomicInteger(0);
+
+	public WorkQueue(int capacity) {
+		if(capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("work queue capacity must be in (0, " + MAX_CAPACITY +
+					"], provide = " + capacity);
+		}
+		int size = 1;
+		while(size < capacity) {
+			size <<= 1;
+		}
+		this.capacity = capacity;
+		this.mask = size - 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean offer(Runnable task) {
+		if(task == null) {
+			throw new NullPointerException();
+		}
+		long pos = tail.get();
+		int idx;
+		for(;;) {
+			if(pos - head.get() >= capacity) {
+				return false;
+			}
+			idx = (int) pos & mask;
+			long dif = sequences.get(idx) - pos;
+			if(dif == 0) {
+				if(tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+				pos = tail.get();
+			} else if(dif < 0) {
+				return false;
+			} else {
+				pos = tail.get();
+			}
+		}
+		slots.set(idx, task);
+		sequences.set(idx, pos + 1);
+		if(waiters.get() > 0) {
+			lock.lock();
+			try {
+				notEmpty.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Runnable poll() {
+		Runnable task;
+		do {
+			long pos = head.get();
+			int idx;
+			for(;;) {
+				idx = (int) pos & mask;
+				long dif = sequences.get(idx) - (pos + 1);
+				if(dif == 0) {
+					if(head.compareAndSet(pos, pos + 1)) {
+						break;
+					}
+					pos = head.get();
+				} else if(dif < 0) {
+					return null;
+				} else {
+					pos = head.get();
+				}
+			}
+			task = slots.getAndSet(idx, null);
+			sequences.set(idx, pos + mask + 1);
+			if(task == REMOVED) {
+				removed.decrementAndGet();
+			}
+		} while(task == REMOVED);
+		return task;
+	}
+
+	@Override
+	public Runnable peek() {
+		long end = tail.get();
+		for(long pos = head.get(); pos < end; pos++) {
+			int idx = (int) pos & mask;
+			if(sequences.get(idx) != pos + 1) {
+				return null;
+			}
+			Runnable task = slots.get(idx);
+			if(task != null && task != REMOVED) {
+				return task;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void put(Runnable task) throws InterruptedException {
+		while(!offer(task)) {
+			if(Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			LockSupport.parkNanos(PUT_PARK_NANOS);
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!offer(task)) {
+			if(Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if(deadline - System.nanoTime() <= 0) {
+				return false;
+			}
+			LockSupport.parkNanos(PUT_PARK_NANOS);
+		}
+		return true;
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		Runnable task = poll();
+		if(task != null) {
+			return task;
+		}
+		lock.lockInterruptibly();
+		waiters.incrementAndGet();
+		try {
+			while((task = poll()) == null) {
+				notEmpty.await();
+			}
+			return task;
+		} finally {
+			waiters.decrementAndGet();
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		Runnable task = poll();
+		if(task != null) {
+			return task;
+		}
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		waiters.incrementAndGet();
+		try {
+			while((task = poll()) == null) {
+				if(nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return task;
+		} finally {
+			waiters.decrementAndGet();
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		long size = tail.get() - head.get() - removed.get();
+		return size < 0 ? 0 : (int) Math.min(size, capacity);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(o == null) {
+			return false;
+		}
+		long end = tail.get();
+		for(long pos = head.get(); pos < end; pos++) {
+			int idx = (int) pos & mask;
+			if(sequences.get(idx) != pos + 1) {
+				continue;
+			}
+			Runnable task = slots.get(idx);
+			if(task != null && task != REMOVED && o.equals(task) && slots.compareAndSet(idx, task, REMOVED)) {
+				removed.incrementAndGet();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		int n = 0;
+		Runnable task;
+		while(n < maxElements && (task = poll()) != null) {
+			c.add(task);
+			n++;
+		}
+		return n;
+	}
+
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot = new ArrayList<>();
+		long end = tail.get();
+		for(long pos = head.get(); pos < end; pos++) {
+			int idx = (int) pos & mask;
+			Runnable task = slots.get(idx);
+			if(task != null && task != REMOVED && sequences.get(idx) == pos + 1) {
+				snapshot.add(task);
+			}
+		}
+		return new Itr(snapshot.iterator());
+	}
+
+	private class Itr implements Iterator<Runnable> {
+
+		private Iterator<Runnable> snapshot;
+		private Runnable last;
+
+		Itr(Iterator<Runnable> snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return snapshot.hasNext();
+		}
+
+		@Override
+		public Runnable next() {
+			return last = snapshot.next();
+		}
+
+		@Override
+		public void remove() {
+			if(last == null) {
+				throw new IllegalStateException();
+			}
+			WorkQueue.this.remove(last);
+			last = null;
+		}
+	}
+}
@@ -10,11 +10,13 @@ import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.archer.jdknet.Bytes;
+import com.archer.jdknet.CompositeBytes;
 import com.archer.jdknet.util.HexUtil;
 
 public class HttpRequest {
 
     private static final int DEFAULT_HEADER_SIZE = 32;
+    private static final int DEFAULT_BODY_SIZE = 1024;
     private static final char SEM = ';';
     private static final char COLON = ':';
     private static final char SPACE = ' ';
@@ -52,8 +54,9 @@ public class HttpRequest {
 	
     private volatile boolean finished = false; 
     
-    private Bytes remainBody = new Bytes();
-    private Bytes chunkedBody = new Bytes();
+    private Bytes remainBody = new Bytes(DEFAULT_BODY_SIZE);
+    private Bytes chunkedBody = new Bytes(DEFAULT_BODY_SIZE);
+    private CompositeBytes body = new CompositeBytes();
 
     private String remoteHost;
     private int remotePort;
@@ -141,6 +144,7 @@ public class HttpRequest {
 		isChunked = false;
 		remainBody.clear();
 		chunkedBody.clear();
+		body.clear();
 	}
 
 	protected void setMethod(String method) throws IOException {
@@ -323,17 +327,15 @@ public class HttpRequest {
 					if(i > msg.length) {
 						throw new HttpException(HttpStatus.BAD_REQUEST);
 					}
-					content = new byte[contentLength];
 					if(i < msg.length) {
-						System.arraycopy(msg, i, content, 0, msg.length - i);
+						body.addComponent(new Bytes(msg, i, msg.length - i));
 						pos += msg.length - i;
 					}
-				} else if(contentLength == 0) {
-					content = new byte[0];
-				} else {
+				} else if(contentLength != 0) {
 					throw new HttpException(HttpStatus.BAD_REQUEST);
 				}
 				if(pos == contentLength) {
+					content = body.readAll();
 					finished = true;
 				}
 			} else if(transferEncoding != null && CHUNKED.equals(transferEncoding)) {
@@ -372,68 +374,76 @@ public class HttpRequest {
 			if(finished) {
 				chunkedBody.clear();
 				remainBody.clear();
+				body.clear();
 			}
 		} finally {
 			contentLock.unlock();
 		}
 	}
 	
-	protected synchronized void putContent(byte[] content) {
-		if(this.content == null) {
+	protected synchronized void putContent(Bytes in) {
+		if(finished || isEmpty()) {
 			throw new HttpException(HttpStatus.BAD_REQUEST.getCode(), 
 					"content is not expected here.");
 		}
 		contentLock.lock();
 		try {
 			if(isChunked) {
-				int s = 0, len = 0, state = CHUNKED_LEN;
-				if(remainBody.available() > 0) {
-					remainBody.write(content);
-					content = remainBody.readAll();
-				}
-				for(int i = 0; i < content.length; i++) {
-		    		if(state == CHUNKED_LEN && content[i] == ENTER) {
-		    			len = HexUtil.bytesToInt(content, s, i - 1);
-		    			state = CHUNKED_VAL;
-		    			if(len == 0) {
-		    				finished = true;
-		    				break;
-		    			} else {
-		    				if(len + i + 1 > content.length) {
-		    					remainBody.write(content, s, content.length - s);
-		    					break;
-		    				} else {
-		    					chunkedBody.write(content, i + 1, len);
-		    				}
-		    				i += 1 + len;
-		    			}
-		    			continue;
-		    		}
-		    		if(state == CHUNKED_VAL && content[i] == ENTER) {
-		    			s = i + 1;
-		    			state = CHUNKED_LEN;
-		    		}
-				}
+				putChunked(in.readAll());
 			} else {
-				if(content.length + pos > this.content.length) {
+				if(in.available() + pos > this.contentLength) {
 					throw new HttpException(HttpStatus.BAD_REQUEST.getCode(),
 							"content bytes over flow.");
 				}
-				pos += content.length;
+				pos += in.available();
+				body.addComponent(in);
 				if(pos == this.contentLength) {
+					this.content = body.readAll();
 					finished = true;
 				}
 			}
 		} finally {
 			if(finished) {
-				this.content = chunkedBody.readAll();
 				chunkedBody.clear();
 				remainBody.clear();
+				body.clear();
 			}
 			contentLock.unlock();
 		}
 	}
 	
+	private void putChunked(byte[] content) {
+		int s = 0, len = 0, state = CHUNKED_LEN;
+		if(remainBody.available() > 0) {
+			remainBody.write(content);
+			content = remainBody.readAll();
+		}
+		for(int i = 0; i < content.length; i++) {
+    		if(state == CHUNKED_LEN && content[i] == ENTER) {
+    			len = HexUtil.bytesToInt(content, s, i - 1);
+    			state = CHUNKED_VAL;
+    			if(len == 0) {
+    				this.content = chunkedBody.readAll();
+    				finished = true;
+    				break;
+    			} else {
+    				if(len + i + 1 > content.length) {
+    					remainBody.write(content, s, content.length - s);
+    					break;
+    				} else {
+    					chunkedBody.write(content, i + 1, len);
+    				}
+    				i += 1 + len;
+    			}
+    			continue;
+    		}
+    		if(state == CHUNKED_VAL && content[i] == ENTER) {
+    			s = i + 1;
+    			state = CHUNKED_LEN;
+    		}
+		}
+	}
+	
 	protected boolean isFinished() {
 		return finished;
 	}
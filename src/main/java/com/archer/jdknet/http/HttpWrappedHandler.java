@@ -1,7 +1,6 @@
 package com.archer.jdknet.http;
 
-import java.util.concurrent.ConcurrentHashMap;
-
+import com.archer.jdknet.AttributeKey;
 import com.archer.jdknet.Bytes;
 import com.archer.jdknet.Channel;
 import com.archer.jdknet.Handler;
@@ -9,14 +8,13 @@ import com.archer.jdknet.Handler;
 
 public abstract class HttpWrappedHandler extends Handler {
 	
-	private static ConcurrentHashMap<String, HttpContext> contextCache = new ConcurrentHashMap<>();
+	private static final AttributeKey<HttpContext> CONTEXT = AttributeKey.valueOf(HttpWrappedHandler.class, "context");
     
     public HttpWrappedHandler() {}
 
 	@Override
 	public void onConnect(Channel channel) throws Exception {
-		HttpContext context = getHttpContext(channel, true);
-		contextCache.put(channel.getId(), context);
+		getHttpContext(channel, true);
 	}
 
 	@Override
@@ -28,17 +26,16 @@ public abstract class HttpWrappedHandler extends Handler {
 		HttpContext context = getHttpContext(channel, true);
 		HttpRequest req = context.request;
 		HttpResponse res = context.response;
-		byte[] msg = in.readAll();
 		if(req.isEmpty()) {
 			try {
-				req.parse(msg);
+				req.parse(in.readAll());
 				res.setVersion(req.getHttpVersion());
 			} catch(HttpException e) {
 				res.setStatus(HttpStatus.valueOf(e.getCode()));
 				onWrite(channel, new Bytes(res.toBytes()));
 			}
 		} else {
-			req.putContent(msg);
+			req.putContent(in);
 		}
 		if(req.isFinished()) {
 			try {
@@ -66,7 +63,10 @@ public abstract class HttpWrappedHandler extends Handler {
 	
 	@Override
 	public void onDisconnect(Channel channel) throws Exception {
-		contextCache.remove(channel.getId());
+		HttpContext context = channel.removeAttr(CONTEXT);
+		if(context != null) {
+			context.request.clear();
+		}
 	}
 
 	@Override
@@ -83,9 +83,10 @@ public abstract class HttpWrappedHandler extends Handler {
 	}
 	
 	private HttpContext getHttpContext(Channel channel, boolean create) {
-		HttpContext context = contextCache.getOrDefault(channel.getId(), null);
+		HttpContext context = channel.attr(CONTEXT);
 		if(create && context == null) {
-			context = new HttpContext(channel.remoteHost(), channel.remotePort());
+			context = channel.attrIfAbsent(CONTEXT, 
+					new HttpContext(channel.remoteHost(), channel.remotePort()));
 		}
 		return context;
 	}
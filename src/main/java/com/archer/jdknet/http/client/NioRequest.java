@@ -19,6 +19,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.archer.jdknet.BufferPool;
+
 
 /**
  * @author xuyi
@@ -175,7 +177,13 @@ public class NioRequest {
 	    		}
 	    	}
 		} finally {
-			closeConnection(socketChannel, engine, buf);
+			try {
+				closeConnection(socketChannel, engine, buf);
+			} finally {
+				if(buf != null) {
+					buf.release();
+				}
+			}
 		}
 	}
 	
@@ -189,41 +197,55 @@ public class NioRequest {
 	}
 	
 	private static void write(SocketChannel socketChannel, byte[] data) throws IOException {
-		ByteBuffer byteBuf = ByteBuffer.allocate(data.length);
-		byteBuf.put(data);
-		byteBuf.flip();
-		while(byteBuf.hasRemaining()) {
-			socketChannel.write(byteBuf);
+		ByteBuffer byteBuf = BufferPool.acquire(Math.min(data.length, BufferPool.MAX_SIZE));
+		try {
+			int offset = 0;
+			while(offset < data.length) {
+				int len = Math.min(byteBuf.capacity(), data.length - offset);
+				byteBuf.clear();
+				byteBuf.put(data, offset, len);
+				byteBuf.flip();
+				while(byteBuf.hasRemaining()) {
+					socketChannel.write(byteBuf);
+				}
+				offset += len;
+			}
+		} finally {
+			BufferPool.release(byteBuf);
 		}
 	}
 	
 	private static byte[] read(SocketChannel socketChannel) 
 			throws IOException {
-		ByteBuffer byteBuf = ByteBuffer.allocate(BUFFER_SIZE);
+		ByteBuffer byteBuf = BufferPool.acquire(BUFFER_SIZE);
 		byte[] t = new byte[BUFFER_SIZE];
 		int offset = 0, readCount = 0;
-		while(readCount < READ_TRY) {
-			byteBuf.clear();
-			int bytesRead = socketChannel.read(byteBuf);
-			if(bytesRead > 0) {
-				readCount = 0;
-				byteBuf.flip();
-				if(t.length < offset + byteBuf.limit()) {
-					int newLen = t.length << 1;
-					while(newLen < offset + byteBuf.limit()) {
-						newLen <<= 1;
+		try {
+			while(readCount < READ_TRY) {
+				byteBuf.clear();
+				int bytesRead = socketChannel.read(byteBuf);
+				if(bytesRead > 0) {
+					readCount = 0;
+					byteBuf.flip();
+					if(t.length < offset + byteBuf.limit()) {
+						int newLen = t.length << 1;
+						while(newLen < offset + byteBuf.limit()) {
+							newLen <<= 1;
+						}
+						byte[] tmp = new byte[newLen];
+						System.arraycopy(t, 0, tmp, 0, offset);
+						t = tmp;
 					}
-					byte[] tmp = new byte[newLen];
-					System.arraycopy(t, 0, tmp, 0, offset);
-					t = tmp;
+					byteBuf.get(t, offset, byteBuf.limit());
+					offset += byteBuf.limit();
+				} else if(bytesRead == 0) {
+					readCount++;
+				} else {
+					break;
 				}
-				byteBuf.get(t, offset, byteBuf.limit());
-				offset += byteBuf.limit();
-			} else if(bytesRead == 0) {
-				readCount++;
-			} else {
-				break;
 			}
+		} finally {
+			BufferPool.release(byteBuf);
 		}
 		if(offset == 0) {
 			throw new IOException("Unexpected end of file from server");
@@ -302,9 +324,9 @@ public class NioRequest {
         					System.arraycopy(t, 0, tmp, 0, offset);
         					t = tmp;
                     	}
-                    	System.arraycopy(buf.peerAppData.array(), 0, t, offset, 
-                    			buf.peerAppData.remaining());
-                    	offset += buf.peerAppData.remaining();
+                    	int appLen = buf.peerAppData.remaining();
+                    	buf.peerAppData.get(t, offset, appLen);
+                    	offset += appLen;
                     	break;
                     case BUFFER_OVERFLOW:
                     	buf.peerAppData = enlargeBuffer(buf.peerAppData, appBufferSize);
@@ -447,19 +469,21 @@ public class NioRequest {
     }
 
     private static ByteBuffer enlargeBuffer(ByteBuffer buffer, int sessionProposedCapacity) {
+    	BufferPool.release(buffer);
         if (sessionProposedCapacity > buffer.capacity()) {
-            buffer = ByteBuffer.allocate(sessionProposedCapacity);
+            buffer = BufferPool.acquire(sessionProposedCapacity);
         } else {
-            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer = BufferPool.acquire(buffer.capacity() * 2);
         }
         return buffer;
     }
 
     private static ByteBuffer handleBufferUnderflow(ByteBuffer buffer, int pactetSize) {
         if (pactetSize > buffer.capacity()) {
-        	ByteBuffer replaceBuffer = ByteBuffer.allocate(pactetSize);
+        	ByteBuffer replaceBuffer = BufferPool.acquire(pactetSize);
         	buffer.flip();
         	replaceBuffer.put(buffer);
+        	BufferPool.release(buffer);
         	return replaceBuffer;
         }
         return buffer;
@@ -638,10 +662,18 @@ public class NioRequest {
 		ByteBuffer peerNetData;
 	    
 	    public BufferSet(int appDataSize, int netDataSize) {
-	    	appData = ByteBuffer.allocate(appDataSize);
-	    	netData = ByteBuffer.allocate(netDataSize);
-	        peerAppData = ByteBuffer.allocate(appDataSize);
-	        peerNetData = ByteBuffer.allocate(netDataSize);
+	    	appData = BufferPool.acquire(appDataSize);
+	    	netData = BufferPool.acquire(netDataSize);
+	        peerAppData = BufferPool.acquire(appDataSize);
+	        peerNetData = BufferPool.acquire(netDataSize);
+	    }
+	    
+	    public void release() {
+	    	BufferPool.release(appData);
+	    	BufferPool.release(netData);
+	    	BufferPool.release(peerAppData);
+	    	BufferPool.release(peerNetData);
+	    	appData = netData = peerAppData = peerNetData = null;
 	    }
 	}
 	
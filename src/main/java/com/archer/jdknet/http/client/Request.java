@@ -12,6 +12,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -25,6 +28,7 @@ import com.archer.jdknet.Channel;
 import com.archer.jdknet.ClientChannel;
 import com.archer.jdknet.Handler;
 import com.archer.jdknet.SslHandler;
+import com.archer.jdknet.Timeout;
 import com.archer.jdknet.http.HttpException;
 import com.archer.jdknet.http.HttpStatus;
 
@@ -88,6 +92,25 @@ public class Request {
 	
 	public static Response request(String method, String httpUrl, byte[] body, Options option)
 			throws IOException {
+		try {
+			return requestAsync(method, httpUrl, body, option).get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE.getCode(), "request interrupted.");
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof HttpException) {
+				throw (HttpException) cause;
+			}
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE.getCode(), cause.getMessage());
+		}
+	}
+	
+	public static CompletableFuture<Response> requestAsync(String method, String httpUrl, byte[] body, Options option)
+			throws IOException {
 		if(option == null) {
 			option = new Options();
 		}
@@ -116,20 +139,29 @@ public class Request {
 		}
 
 		byte[] data = getRequestAsBytes(method, url, option, body);
-		try {
-			HttpRequestHandler reqHandler = new HttpRequestHandler(new Bytes(data));
-			channel.add(reqHandler);
-			channel.connect();
-			reqHandler.awaitForResponse(option.getTimeout());
-			if(reqHandler.getErr() != null) {
-				throw reqHandler.getErr();
+		int timeout = option.getTimeout();
+		long start = System.currentTimeMillis();
+		HttpRequestHandler reqHandler = new HttpRequestHandler(new Bytes(data));
+		CompletableFuture<Response> future = reqHandler.future;
+		channel.add(reqHandler);
+		channel.connectTimeout(timeout, TimeUnit.MILLISECONDS);
+		channel.connectAsync().whenComplete((ch, err) -> {
+			if(err != null) {
+				reqHandler.fail(HttpStatus.SERVICE_UNAVAILABLE, err.getMessage());
+				return ;
 			}
-			
-			return reqHandler.getRes();
-		} finally {
-			channel.close();
-		}
-    	
+			long remain = timeout - (System.currentTimeMillis() - start);
+			if(remain <= 0) {
+				reqHandler.fail(HttpStatus.GATEWAY_TIMEOUT, "timeout " + timeout);
+				return ;
+			}
+			Timeout timer = ch.schedule(() -> {
+				reqHandler.fail(HttpStatus.GATEWAY_TIMEOUT, "timeout " + timeout);
+			}, remain, TimeUnit.MILLISECONDS);
+			future.whenComplete((res, e) -> timer.cancel());
+		});
+		future.whenComplete((res, err) -> channel.close());
+		return future;
 	}
 	
 	private static byte[] getRequestAsBytes(String method, HttpUrl url, Options option, byte[] body) {
@@ -420,41 +452,17 @@ public class Request {
 
 	private static class HttpRequestHandler extends Handler {
 		
-		private Object lock = new Object();
+		private CompletableFuture<Response> future = new CompletableFuture<>();
 		
 		private Response res;
-		private HttpException err;
 		private Bytes req;
 		
 		public HttpRequestHandler(Bytes req) {
 			this.req = req;
 		}
 		
-		public void awaitForResponse(long timeout) {
-			long s = System.currentTimeMillis();
-			synchronized(lock) {
-				try {
-					lock.wait(timeout);
-				} catch (InterruptedException ignore) {}
-			}
-			long e = System.currentTimeMillis();
-			if(e - s >= timeout) {
-				throw new HttpException(HttpStatus.GATEWAY_TIMEOUT.getCode(), "timeout " + (e - s));
-			}
-		}
-		
-		public void release() {
-			synchronized(lock) {
-				lock.notifyAll();
-			}
-		}
-
-		public HttpException getErr() {
-			return err;
-		}
-
-		public Response getRes() {
-			return res;
+		public void fail(HttpStatus status, String msg) {
+			future.completeExceptionally(new HttpException(status.getCode(), msg));
 		}
 
 		@Override
@@ -473,7 +481,7 @@ public class Request {
 				res.parseHead(in.readAll());
 			}
 			if(res.finished()) {
-				release();
+				future.complete(res);
 			}
 		}
 
@@ -481,12 +489,13 @@ public class Request {
 		public void onWrite(Channel channel, Bytes out) throws Exception {}
 
 		@Override
-		public void onDisconnect(Channel channel) throws Exception {}
+		public void onDisconnect(Channel channel) throws Exception {
+			fail(HttpStatus.SERVICE_UNAVAILABLE, "connection closed before response finished.");
+		}
 
 		@Override
 		public void onError(Channel channel, Throwable t) {
-			err = new HttpException(HttpStatus.SERVICE_UNAVAILABLE.getCode(), t.getMessage());
-			release();
+			fail(HttpStatus.SERVICE_UNAVAILABLE, t.getMessage());
 		}
 
 		@Override
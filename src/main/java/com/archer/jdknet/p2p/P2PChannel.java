@@ -10,8 +10,10 @@ import javax.net.ssl.SSLContext;
 import com.archer.jdknet.Bytes;
 import com.archer.jdknet.ChannelException;
 import com.archer.jdknet.ClientChannel;
+import com.archer.jdknet.ExecutorGroup;
 import com.archer.jdknet.Handler;
 import com.archer.jdknet.HandlerException;
+import com.archer.jdknet.ReconnectPolicy;
 import com.archer.jdknet.ServerChannel;
 import com.archer.jdknet.SslHandler;
 
@@ -20,6 +22,9 @@ public class P2PChannel {
 	private ServerChannel server;
 	private Set<ClientChannel> connections;
 	
+	private ReconnectPolicy reconnectPolicy;
+	private int pendingWrites = 0;
+	
 	private boolean useSsl = false;
 	private SSLContext context;
 	
@@ -33,12 +38,38 @@ public class P2PChannel {
 		connections = new LinkedHashSet<>();
 		for(EndPoint peer: peers) {
 			ClientChannel peerChannel = new ClientChannel(peer.host(), peer.port());
-			peerChannel.initHandlerWorker(server.handlerWorker());
+			peerChannel.initHandlerWorker(server.handlerWorker())
+				.reconnect(reconnectPolicy).pendingWrites(pendingWrites);
 			connections.add(peerChannel);
 		}
 		return this;
 	}
 	
+	public P2PChannel reconnect(ReconnectPolicy policy) {
+		this.reconnectPolicy = policy;
+		if(connections != null) {
+			for(ClientChannel connection: connections) {
+				connection.reconnect(policy);
+			}
+		}
+		return this;
+	}
+	
+	public P2PChannel pendingWrites(int maxBytes) {
+		this.pendingWrites = maxBytes;
+		if(connections != null) {
+			for(ClientChannel connection: connections) {
+				connection.pendingWrites(maxBytes);
+			}
+		}
+		return this;
+	}
+	
+	public P2PChannel executorGroup(ExecutorGroup group) {
+		server.executorGroup(group);
+		return this;
+	}
+	
 	public P2PChannel useSsl(InputStream caStream, InputStream keyStream, InputStream crtStream)
 			throws Exception {
 		if(server.handlerInitialized()) {
@@ -73,7 +104,8 @@ public class P2PChannel {
 				connection.connect();
 			} catch (IOException e) {
 				System.err.println("connect to " + connection.endpoint() + 
-						" failed." + ChannelException.formatException(e));
+						" failed" + (reconnectPolicy != null ? ", will retry. " : ". ") + 
+						ChannelException.formatException(e));
 			}
 		}
 	}
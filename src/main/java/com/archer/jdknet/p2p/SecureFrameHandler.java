@@ -4,13 +4,14 @@ import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.DataFormatException;
 
+import com.archer.jdknet.AttributeKey;
 import com.archer.jdknet.Bytes;
 import com.archer.jdknet.Channel;
 import com.archer.jdknet.ChannelException;
+import com.archer.jdknet.CompositeBytes;
 import com.archer.jdknet.Handler;
 import com.archer.jdknet.HandlerException;
 
@@ -26,21 +27,34 @@ public class SecureFrameHandler extends Handler {
 	private static final byte COMPRESS = 21;
 	private static final byte UN_COMPRESS = 22;
 	
-	private static ConcurrentHashMap<Channel, FrameMessage> frameCache = new ConcurrentHashMap<>();
+	private static final AttributeKey<FrameMessage> FRAME = AttributeKey.valueOf(SecureFrameHandler.class, "frame");
 	
 	@Override
 	public void onConnect(Channel channel) throws Exception {
 		if(channel.isClientMode()) {
 			FrameMessage msg = new FrameMessage(true);
-			frameCache.put(channel, msg);
+			channel.attr(FRAME, msg);
 			toLastOnWrite(channel, msg.clientPk());
 		}
 	}
 
 	@Override
 	public void onRead(Channel channel, Bytes in) throws Exception {
-		byte type = (byte) in.readInt8();
 		FrameMessage frame = getFrameMessage(channel);
+		while(in.available() > 0) {
+			if(frame.inProgress()) {
+				Bytes read = frame.appDataUnwrap(in);
+				if(read != null) {
+					toNextOnRead(channel, read);
+				}
+				continue;
+			}
+			onFrame(channel, frame, in);
+		}
+	}
+	
+	private void onFrame(Channel channel, FrameMessage frame, Bytes in) throws Exception {
+		byte type = (byte) in.readInt8();
 		switch(type) {
 		case CLIENT_PK: {
 			toLastOnWrite(channel, frame.serverSk(in));
@@ -71,6 +85,10 @@ public class SecureFrameHandler extends Handler {
 
 	@Override
 	public void onDisconnect(Channel channel) throws Exception {
+		FrameMessage frame = channel.removeAttr(FRAME);
+		if(frame != null) {
+			frame.release();
+		}
 		toNextOnDisconnect(channel);
 	}
 
@@ -85,10 +103,9 @@ public class SecureFrameHandler extends Handler {
 	}
 	
 	private FrameMessage getFrameMessage(Channel channel) {
-		FrameMessage msg = frameCache.getOrDefault(channel, null);
+		FrameMessage msg = channel.attr(FRAME);
 		if(msg == null) {
-			msg = new FrameMessage(false);
-			frameCache.put(channel, msg);
+			msg = channel.attrIfAbsent(FRAME, new FrameMessage(false));
 		}
 		return msg;
 	}
@@ -100,8 +117,8 @@ public class SecureFrameHandler extends Handler {
 		private BigInteger e, d, n;
 		private byte[] sk = null;
 
-		private byte[] data = null;
-		private int pos = 0;
+		private CompositeBytes payload = null;
+		private int dataLen = 0;
 		private boolean compressed = false;
 		
 		public FrameMessage(boolean init) {
@@ -164,6 +181,10 @@ public class SecureFrameHandler extends Handler {
 			}
 		}
 		
+		public boolean inProgress() {
+			return payload != null;
+		}
+		
 		public Bytes appDataWrap(Bytes out) {
 			byte[] text = out.readAll();
 			int head = 1 + 1 + 4;
@@ -190,21 +211,18 @@ public class SecureFrameHandler extends Handler {
 		public Bytes appDataUnwrap(Bytes in) {
 			try {
 				frameLock.lock();
-				int readCount;
-				if(data == null) {
+				if(payload == null) {
 					byte compress = (byte) in.readInt8();
-					int dataLen = in.readInt32();
+					dataLen = in.readInt32();
 					compressed = compress == COMPRESS;
-					data = new byte[dataLen];
-					pos = 0;
-					readCount = dataLen > in.available() ? in.available() : dataLen;
-				} else {
-					int remain = data.length - pos;
-					readCount = remain > in.available() ? in.available() : remain;
+					payload = new CompositeBytes();
 				}
-				in.read(data, pos, readCount);
-				pos += readCount;
-				if(pos >= data.length) {
+				int remain = dataLen - payload.available();
+				payload.readFromBytes(in, remain > in.available() ? in.available() : remain);
+				if(payload.available() >= dataLen) {
+					byte[] data = payload.readAll();
+					payload.release();
+					payload = null;
 					int j = 0;
 					for(int i = 0; i < data.length; i++) {
 						if(j >= sk.length) {
@@ -219,11 +237,8 @@ public class SecureFrameHandler extends Handler {
 							throw new ChannelException("decompress failed.");
 						}
 					}
-					Bytes read =  new Bytes(data);
-					data = null;
-					pos = 0;
 					compressed = false;
-					return read;
+					return new Bytes(data);
 				}
 				return null;
 			} finally {
@@ -231,6 +246,18 @@ public class SecureFrameHandler extends Handler {
 			}
 		}
 		
+		public void release() {
+			frameLock.lock();
+			try {
+				if(payload != null) {
+					payload.release();
+					payload = null;
+				}
+			} finally {
+				frameLock.unlock();
+			}
+		}
+		
 		public Bytes clientPk() {
 			byte[] eNum = formatBytes(e.toByteArray(), BYTES);
 			byte[] nNum = formatBytes(n.toByteArray(), BYTES);